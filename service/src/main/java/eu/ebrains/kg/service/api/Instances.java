@@ -23,17 +23,38 @@
 
 package eu.ebrains.kg.service.api;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import eu.ebrains.kg.service.controllers.IdController;
 import eu.ebrains.kg.service.controllers.InstanceController;
+import eu.ebrains.kg.service.helpers.BlockingTasks;
+import eu.ebrains.kg.service.helpers.Helpers;
+import eu.ebrains.kg.service.models.ETaggedBody;
+import eu.ebrains.kg.service.models.Error;
+import eu.ebrains.kg.service.models.InstanceView;
 import eu.ebrains.kg.service.models.KGCoreResult;
-import eu.ebrains.kg.service.models.ResultWithOriginalMap;
 import eu.ebrains.kg.service.models.commons.UserSummary;
 import eu.ebrains.kg.service.models.instance.*;
+import eu.ebrains.kg.service.models.type.SimpleType;
+import eu.ebrains.kg.service.models.type.StructureOfIncomingLink;
+import eu.ebrains.kg.service.services.IncomingLinksCache;
 import eu.ebrains.kg.service.services.InstanceClient;
+import eu.ebrains.kg.service.services.InstanceLabelCache;
+import eu.ebrains.kg.service.services.ReleaseClient;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
 // TODO Add proper error handling
@@ -42,103 +63,264 @@ public class Instances {
     private final InstanceClient instanceClient;
     private final InstanceController instanceController;
     private final IdController idController;
+    private final InstanceLabelCache labelCache;
+    private final IncomingLinksCache incomingLinksCache;
+    private final ReleaseClient releaseClient;
+    private final ObjectMapper objectMapper;
+    private final BlockingTasks blockingTasks;
 
-    public Instances(InstanceClient instanceClient, InstanceController instanceController, IdController idController) {
+    public Instances(InstanceClient instanceClient, InstanceController instanceController, IdController idController, InstanceLabelCache labelCache, IncomingLinksCache incomingLinksCache, ReleaseClient releaseClient, ObjectMapper jacksonObjectMapper, BlockingTasks blockingTasks) {
         this.instanceClient = instanceClient;
         this.instanceController = instanceController;
         this.idController = idController;
+        this.labelCache = labelCache;
+        this.incomingLinksCache = incomingLinksCache;
+        this.releaseClient = releaseClient;
+        this.objectMapper = jacksonObjectMapper;
+        this.blockingTasks = blockingTasks;
     }
 
+    /**
+     * @param incomingLinks if false, the incoming links and the possible incoming links are left out - they can be
+     *                      loaded on demand with {@link #getIncomingLinksOverview(String, String)}
+     */
     @GetMapping("/instances/{id}")
-    public KGCoreResult<InstanceFull> getInstance(@PathVariable("id") String id) {
-        ResultWithOriginalMap<InstanceFull> instanceWithMap = instanceClient.getInstance(id);
-        InstanceFull instanceFull = instanceController.enrichInstance(instanceWithMap);
-        return new KGCoreResult<InstanceFull>().setData(instanceFull);
+    public Mono<ResponseEntity<byte[]>> getInstance(@PathVariable("id") String id,
+                                                    @RequestParam(value = "incomingLinks", required = false, defaultValue = "true") boolean incomingLinks,
+                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return instanceClient.requestInstancePayload(id, incomingLinks).flatMap(blockingTasks.apply(payload -> {
+            ETaggedBody instance = instanceController.getSerializedInstance(id, payload, () -> instanceClient.readInstance(payload), ifNoneMatch, incomingLinks);
+            if (instance.matches(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(instance.getETag()).build();
+            }
+            return ResponseEntity.ok().eTag(instance.getETag()).contentType(MediaType.APPLICATION_JSON).body(instance.getBody());
+        }));
     }
 
 
     @PostMapping("/instances/{id}")
-    public KGCoreResult<InstanceFull> createInstance(@PathVariable("id") String id,
-                                                     @RequestParam("space") String space,
-                                                     @RequestBody Map<String, Object> payload) {
+    public Mono<KGCoreResult<InstanceFull>> createInstance(@PathVariable("id") String id,
+                                                           @RequestParam("space") String space,
+                                                           @RequestBody Map<String, Object> payload) {
         Map<?, ?> normalizedPayload = idController.fullyQualifyAtId(payload);
-        ResultWithOriginalMap<InstanceFull> instanceWithMap = instanceClient.postInstance(id, space, normalizedPayload);
-        InstanceFull instanceFull = instanceController.enrichInstance(instanceWithMap);
-        return new KGCoreResult<InstanceFull>().setData(instanceFull);
+        return enrich(instanceClient.requestPostInstance(id, space, normalizedPayload));
     }
 
 
     @PostMapping("/instances")
-    public KGCoreResult<InstanceFull> createInstanceWithoutId(@RequestParam("space") String space,
-                                                     @RequestBody Map<String, Object> payload) {
+    public Mono<KGCoreResult<InstanceFull>> createInstanceWithoutId(@RequestParam("space") String space,
+                                                                    @RequestBody Map<String, Object> payload) {
         Map<?, ?> normalizedPayload = idController.fullyQualifyAtId(payload);
-        ResultWithOriginalMap<InstanceFull> instanceWithMap = instanceClient.postInstance(space, normalizedPayload);
-        InstanceFull instanceFull = instanceController.enrichInstance(instanceWithMap);
-        return new KGCoreResult<InstanceFull>().setData(instanceFull);
+        return enrich(instanceClient.requestPostInstance(space, normalizedPayload));
     }
 
     @PatchMapping("/instances/{id}")
-    public KGCoreResult<InstanceFull> updateInstance(@PathVariable("id") String id,
-                                                     @RequestBody Map<String, Object> payload) {
+    public Mono<KGCoreResult<InstanceFull>> updateInstance(@PathVariable("id") String id,
+                                                           @RequestBody Map<String, Object> payload) {
         Map<?, ?> normalizedPayload = idController.fullyQualifyAtId(payload);
-        ResultWithOriginalMap<InstanceFull> instanceWithMap = instanceClient.patchInstance(id, normalizedPayload);
-        InstanceFull instanceFull = instanceController.enrichInstance(instanceWithMap);
-        return new KGCoreResult<InstanceFull>().setData(instanceFull);
+        return enrich(instanceClient.requestPatchInstance(id, normalizedPayload));
+    }
+
+    private Mono<KGCoreResult<InstanceFull>> enrich(Mono<InstanceView<InstanceFull>> instanceView) {
+        return instanceView.flatMap(blockingTasks.apply(view -> new KGCoreResult<InstanceFull>().setData(instanceController.enrichInstance(view))))
+                .defaultIfEmpty(new KGCoreResult<>());
     }
 
     @DeleteMapping("/instances/{id}")
-    public void deleteInstance(@PathVariable("id") String id) {
-        instanceClient.deleteInstance(id);
+    public Mono<Void> deleteInstance(@PathVariable("id") String id) {
+        return instanceClient.requestDeleteInstance(id);
     }
 
     @GetMapping("/instances/{id}/raw")
-    public Map<String, Object> getRawInstance(@PathVariable("id") String id) {
-        return instanceClient.getRawInstance(id);
+    public Mono<Map<String, Object>> getRawInstance(@PathVariable("id") String id) {
+        return instanceClient.requestRawInstance(id);
     }
 
     @GetMapping("/instances/{id}/scope")
-    public KGCoreResult<Scope> getInstanceScope(@PathVariable("id") String id) {
-        Scope instanceScope = instanceClient.getInstanceScope(id);
-        instanceController.enrichScopeRecursivelyWithTypeAndReleaseStatusInformation(instanceScope);
-        return new KGCoreResult<Scope>().setData(instanceScope);
+    public Mono<KGCoreResult<Scope>> getInstanceScope(@PathVariable("id") String id) {
+        return instanceClient.requestInstanceScope(id).flatMap(blockingTasks.apply(instanceScope -> {
+            instanceController.enrichScopeRecursivelyWithTypeAndReleaseStatusInformation(instanceScope);
+            return new KGCoreResult<Scope>().setData(instanceScope);
+        })).defaultIfEmpty(new KGCoreResult<>());
+    }
+
+    /**
+     * Combines the instance, its scope, its neighbors and its release status - the underlying calls to kg-core are
+     * issued concurrently.
+     */
+    @GetMapping("/instances/{id}/overview")
+    public Mono<KGCoreResult<InstanceOverview>> getInstanceOverview(@PathVariable("id") String id) {
+        // The requests are created in the request thread (for the user token) - the results are cached to read them once all of them are done
+        Mono<byte[]> payload = instanceClient.requestInstancePayload(id, true).cache();
+        Mono<Scope> scope = instanceClient.requestInstanceScope(id).cache();
+        Mono<Neighbor> neighbors = instanceClient.requestNeighbors(id).cache();
+        Mono<Map<String, KGCoreResult<String>>> releaseStatus = releaseClient.requestReleaseStatus(Collections.singletonList(id), "TOP_INSTANCE_ONLY").cache();
+        return Mono.when(payload, scope, neighbors, releaseStatus).then(blockingTasks.supply(() -> {
+            // All requests are completed at this point -> reading their results doesn't block anymore
+            InstanceView<InstanceFull> instanceView = instanceClient.readInstance(payload.block());
+            InstanceFull instance = instanceView != null ? instanceController.enrichInstance(instanceView) : null;
+            Scope instanceScope = scope.block();
+            if (instanceScope != null) {
+                instanceController.enrichScopeRecursivelyWithTypeAndReleaseStatusInformation(instanceScope);
+            }
+            Neighbor instanceNeighbors = neighbors.block();
+            if (instanceNeighbors != null) {
+                instanceController.enrichNeighborRecursivelyWithTypeInformation(instanceNeighbors);
+            }
+            Map<String, KGCoreResult<String>> status = releaseStatus.block();
+            KGCoreResult<String> instanceStatus = status != null ? status.get(id) : null;
+            return new KGCoreResult<InstanceOverview>().setData(new InstanceOverview(instance, instanceScope, instanceNeighbors, instanceStatus != null ? instanceStatus.getData() : null));
+        }));
     }
 
+    /**
+     * The incoming links of the instance (the first page by property and source type) together with its possible
+     * incoming links - meant to be loaded when they are shown only.
+     */
+    @GetMapping("/instances/{id}/incomingLinksOverview")
+    public Mono<ResponseEntity<byte[]>> getIncomingLinksOverview(@PathVariable("id") String id, @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return blockingTasks.supply(() -> {
+            ETaggedBody overview = incomingLinksCache.get(id);
+            if (overview == null) {
+                InstanceView<InstanceLabel> instance = instanceClient.getInstances(Collections.singletonList(id), "IN_PROGRESS", false, false, false, false, InstanceLabel.class).get(id);
+                if (instance == null || instance.getResult() == null || instance.getResult().getTypes() == null) {
+                    return ResponseEntity.notFound().build();
+                }
+                List<String> types = instance.getResult().getTypes().stream().map(SimpleType::getName).toList();
+                Map<String, StructureOfIncomingLink> possibleIncomingLinks = instanceController.getPossibleIncomingLinks(types);
+                Map<String, Map<String, IncomingLinksByType>> incomingLinks = instanceClient.getIncomingLinksByType(id, possibleIncomingLinks);
+                try {
+                    overview = ETaggedBody.of(objectMapper.writeValueAsBytes(new KGCoreResult<IncomingLinksOverview>().setData(new IncomingLinksOverview(incomingLinks, possibleIncomingLinks))));
+                } catch (JsonProcessingException e) {
+                    throw new IllegalStateException(e);
+                }
+                incomingLinksCache.put(id, overview);
+            }
+            if (overview.matches(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(overview.getETag()).build();
+            }
+            return ResponseEntity.ok().eTag(overview.getETag()).contentType(MediaType.APPLICATION_JSON).body(overview.getBody());
+        });
+    }
+
+    /**
+     * Either property, type, from and size or a cursor (the "nextCursor" of a previous page) have to be provided.
+     */
     @GetMapping("/instances/{id}/incomingLinks")
-    public KGCoreResult<List<IncomingLink>> getIncomingLinks(@PathVariable("id") String id,
-                                                       @RequestParam("property") String property,
-                                                       @RequestParam("type") String type,
-                                                       @RequestParam("from") int from,
-                                                       @RequestParam("size") int size) {
-        return instanceClient.getIncomingLinks(id, property, type, from, size);
+    public Mono<IncomingLinksPage> getIncomingLinks(@PathVariable("id") String id,
+                                                    @RequestParam(value = "property", required = false) String property,
+                                                    @RequestParam(value = "type", required = false) String type,
+                                                    @RequestParam(value = "from", required = false) Integer from,
+                                                    @RequestParam(value = "size", required = false) Integer size,
+                                                    @RequestParam(value = "cursor", required = false) String cursor) {
+        IncomingLinksCursor position;
+        if (cursor != null) {
+            position = IncomingLinksCursor.decode(id, cursor);
+        } else if (property != null && type != null && from != null && size != null) {
+            position = new IncomingLinksCursor(id, property, type, from, size);
+        } else {
+            throw new IllegalArgumentException("Either property, type, from and size or a cursor are required");
+        }
+        if (position.from() < 0 || position.size() <= 0) {
+            throw new IllegalArgumentException("Invalid page");
+        }
+        return blockingTasks.supply(() -> {
+            IncomingLinksPage page = instanceClient.getIncomingLinks(id, position.property(), position.type(), position.from(), position.size());
+            if (page != null && page.getTotal() != null && position.from() + position.size() < page.getTotal()) {
+                page.setNextCursor(position.next().encode());
+            }
+            return page;
+        });
     }
 
 
+    /**
+     * @param fields the fully qualified names of the fields to return (all if not set)
+     * @param include the optional parts to return - "alternatives", "incomingLinks" and/or "possibleIncomingLinks" (all if not set)
+     */
     @PostMapping("/instancesBulk/list")
-    public KGCoreResult<Map<String, InstanceFull>> getInstancesList(@RequestParam(value = "stage", defaultValue = "IN_PROGRESS", required = false) String stage,
-                                                                    @RequestBody List<String> ids) {
-        Map<String, ResultWithOriginalMap<InstanceFull>> result = instanceClient.getInstances(ids, stage, true, true, true, true, InstanceFull.class);
-        Map<String, InstanceFull> enrichedInstances = instanceController.enrichInstances(result, stage);
-        return new KGCoreResult<Map<String, InstanceFull>>().setData(enrichedInstances);
+    public Mono<KGCoreResult<Map<String, InstanceFull>>> getInstancesList(@RequestParam(value = "stage", defaultValue = "IN_PROGRESS", required = false) String stage,
+                                                                          @RequestParam(value = "fields", required = false) List<String> fields,
+                                                                          @RequestParam(value = "include", required = false) List<String> include,
+                                                                          @RequestBody List<String> ids) {
+        InstanceProjection projection = InstanceProjection.of(fields, include);
+        return instanceClient.requestInstances(ids, stage, projection.includesAlternatives(), true, true, projection.includesIncomingLinks(), InstanceFull.class)
+                .collect(HashMap<String, InstanceView<InstanceFull>>::new, Map::putAll)
+                .flatMap(blockingTasks.apply(result -> new KGCoreResult<Map<String, InstanceFull>>().setData(instanceController.enrichInstances(result, stage, projection))));
+    }
+
+    /**
+     * The same as {@link #getInstancesList(String, List, List, List)} but every instance is written as soon as it has
+     * been enriched: each line is a result containing a single instance. Once the response has been committed, a failure
+     * can't change its status anymore - it is reported as a line with an error instead: a chunk which can't be enriched
+     * is skipped, a failure of kg-core ends the stream.
+     */
+    @PostMapping(value = "/instancesBulk/list", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<KGCoreResult<Map<String, InstanceFull>>> streamInstancesList(@RequestParam(value = "stage", defaultValue = "IN_PROGRESS", required = false) String stage,
+                                                                             @RequestParam(value = "fields", required = false) List<String> fields,
+                                                                             @RequestParam(value = "include", required = false) List<String> include,
+                                                                             @RequestBody List<String> ids) {
+        InstanceProjection projection = InstanceProjection.of(fields, include);
+        AtomicBoolean committed = new AtomicBoolean();
+        return instanceClient.requestInstances(ids, stage, projection.includesAlternatives(), true, true, projection.includesIncomingLinks(), InstanceFull.class)
+                .concatMap(blockingTasks.apply(chunk -> {
+                    try {
+                        return instanceController.enrichInstances(chunk, stage, projection).entrySet().stream()
+                                .map(instance -> new KGCoreResult<Map<String, InstanceFull>>().setData(Collections.singletonMap(instance.getKey(), instance.getValue())))
+                                .toList();
+                    } catch (RuntimeException e) {
+                        return List.of(error(e, String.format("Was not able to enrich the instances %s", String.join(", ", chunk.keySet()))));
+                    }
+                }))
+                .flatMapIterable(results -> results)
+                .doOnNext(result -> committed.set(true))
+                .onErrorResume(RuntimeException.class, e -> {
+                    if (!committed.get()) {
+                        // Nothing has been sent yet -> the failure is handled as for any other request
+                        return Flux.error(e);
+                    }
+                    return Flux.just(error(e, "Was not able to load the remaining instances"));
+                });
+    }
+
+    private static KGCoreResult<Map<String, InstanceFull>> error(RuntimeException e, String message) {
+        Error error = new Error();
+        error.setCode(e instanceof WebClientResponseException responseException ? responseException.getRawStatusCode() : HttpStatus.INTERNAL_SERVER_ERROR.value());
+        error.setMessage(message);
+        return new KGCoreResult<Map<String, InstanceFull>>().setError(error);
     }
 
     @PostMapping("/instancesBulk/summary")
-    public KGCoreResult<Map<String, InstanceSummary>> getInstancesSummary(@RequestParam(value = "stage", defaultValue = "IN_PROGRESS", required = false) String stage,
+    public Mono<KGCoreResult<Map<String, InstanceSummary>>> getInstancesSummary(@RequestParam(value = "stage", defaultValue = "IN_PROGRESS", required = false) String stage,
                                     @RequestBody List<String> ids) {
-        Map<String, ResultWithOriginalMap<InstanceSummary>> result = instanceClient.getInstances(ids, stage, false, true, false, false, InstanceSummary.class);
-        Map<String, InstanceSummary> enrichedInstances = instanceController.enrichInstancesSummary(result);
-        return new KGCoreResult<Map<String, InstanceSummary>>().setData(enrichedInstances);
+        // The instances are loaded in the blocking task too - lookups of the same user are batched (see InstanceClient)
+        return blockingTasks.supply(() -> {
+            Map<String, InstanceView<InstanceSummary>> result = instanceClient.getInstances(ids, stage, false, true, false, false, InstanceSummary.class);
+            Map<String, InstanceSummary> enrichedInstances = instanceController.enrichInstancesSummary(result);
+            return new KGCoreResult<Map<String, InstanceSummary>>().setData(enrichedInstances);
+        });
     }
 
     @PostMapping("/instancesBulk/label")
-    public KGCoreResult<Map<String, InstanceLabel>> getInstancesLabel(@RequestParam(value = "stage", defaultValue = "IN_PROGRESS", required = false) String stage,
+    public Mono<KGCoreResult<Map<String, InstanceLabel>>> getInstancesLabel(@RequestParam(value = "stage", defaultValue = "IN_PROGRESS", required = false) String stage,
                                   @RequestBody List<String> ids) {
-        Map<String, ResultWithOriginalMap<InstanceLabel>> result = instanceClient.getInstances(ids, stage, false, false, false, false, InstanceLabel.class);
-        Map<String, InstanceLabel> enrichedInstances = instanceController.enrichInstancesLabel(result);
-        return new KGCoreResult<Map<String, InstanceLabel>>().setData(enrichedInstances);
+        Map<String, InstanceLabel> enrichedInstances = labelCache.getAll(ids, stage);
+        List<String> missingIds = ids.stream().filter(id -> !enrichedInstances.containsKey(id)).distinct().toList();
+        if (missingIds.isEmpty()) {
+            return Mono.just(new KGCoreResult<Map<String, InstanceLabel>>().setData(enrichedInstances));
+        }
+        return blockingTasks.supply(() -> {
+            long fetchedAt = System.currentTimeMillis();
+            Map<String, InstanceView<InstanceLabel>> result = instanceClient.getInstances(missingIds, stage, false, false, false, false, InstanceLabel.class);
+            Map<String, InstanceLabel> loaded = instanceController.enrichInstancesLabel(result);
+            labelCache.putAll(loaded, stage, fetchedAt);
+            enrichedInstances.putAll(loaded);
+            return new KGCoreResult<Map<String, InstanceLabel>>().setData(enrichedInstances);
+        });
     }
 
     @PostMapping("/instances/{id}/suggestions")
-    public KGCoreResult<SuggestionStructure> getSuggestions(@PathVariable("id") String id,
+    public Mono<KGCoreResult<SuggestionStructure>> getSuggestions(@PathVariable("id") String id,
                                                             @RequestParam("field") String field,
                                                             @RequestParam(value = "sourceType", required = false) String sourceType,
                                                             @RequestParam(value = "targetType", required = false) String targetType,
@@ -146,49 +328,35 @@ public class Instances {
                                                             @RequestParam(value = "size", required = false, defaultValue = "50") int size,
                                                             @RequestParam(value = "search", required = false) String search,
                                                             @RequestBody Map<String, Object> payload) {
-        KGCoreResult<SuggestionStructure> suggestionStructure = instanceClient.postSuggestions(id, field, sourceType, targetType, start, size, search, payload);
-        if(suggestionStructure!= null && suggestionStructure.getData()!=null){
-            suggestionStructure.getData().getSuggestions().getData().forEach(s -> {
-                if(s!=null && s.getType()!=null){
-                    SimpleTypeWithSpaces fullType = suggestionStructure.getData().getTypes().get(s.getType().getName());
-                    if(fullType!=null){
-                        s.setType(fullType);
-                    }
-                }
-            });
-        }
-        return suggestionStructure;
+        return instanceClient.requestSuggestions(id, field, sourceType, targetType, start, size, search, payload);
     }
 
     @PutMapping("/instances/{id}/spaces/{space}")
-    public void moveInstance(@PathVariable("id") String id,
-                             @PathVariable("space") String space) {
-        instanceClient.moveInstance(id, space);
+    public Mono<Void> moveInstance(@PathVariable("id") String id,
+                                   @PathVariable("space") String space) {
+        return instanceClient.requestMoveInstance(id, space);
     }
 
     @GetMapping("/instances/{id}/neighbors")
-    public KGCoreResult<Neighbor> getInstanceNeighbors(@PathVariable("id") String id) {
-        KGCoreResult<Neighbor> neighbor = instanceClient.getNeighbors(id);
-        if(neighbor!=null && neighbor.getData()!=null) {
-            instanceController.enrichNeighborRecursivelyWithTypeInformation(neighbor.getData());
-        }
-        return neighbor;
+    public Mono<KGCoreResult<Neighbor>> getInstanceNeighbors(@PathVariable("id") String id) {
+        return instanceClient.requestNeighbors(id).flatMap(blockingTasks.apply(neighbor -> {
+            instanceController.enrichNeighborRecursivelyWithTypeInformation(neighbor);
+            return new KGCoreResult<Neighbor>().setData(neighbor);
+        })).defaultIfEmpty(new KGCoreResult<>());
     }
 
     @GetMapping("/instances/{id}/invitedUsers")
-    public KGCoreResult<List<UserSummary>> getInvitedUsers(@PathVariable("id") String id) {
-        return instanceClient.getInvitedUsers(id);
+    public Mono<KGCoreResult<List<UserSummary>>> getInvitedUsers(@PathVariable("id") String id) {
+        return Helpers.withUserToken(instanceClient.requestInvitedUsers(id));
     }
 
     @DeleteMapping("/instances/{id}/users/{userId}/invite")
-    public KGCoreResult<List<UserSummary>> deleteUserinvitation(@PathVariable("id") String id, @PathVariable("userId") String userId) {
-        instanceClient.deleteInvitedUser(id, userId);
-        return instanceClient.getInvitedUsers(id);
+    public Mono<KGCoreResult<List<UserSummary>>> deleteUserinvitation(@PathVariable("id") String id, @PathVariable("userId") String userId) {
+        return Helpers.withUserToken(instanceClient.requestDeleteInvitedUser(id, userId).then(Mono.defer(() -> instanceClient.requestInvitedUsers(id))));
     }
 
     @PutMapping("/instances/{id}/users/{userId}/invite")
-    public KGCoreResult<List<UserSummary>> putUserinvitation(@PathVariable("id") String id, @PathVariable("userId") String userId) {
-        instanceClient.addInvitation(id, userId);
-        return instanceClient.getInvitedUsers(id);
+    public Mono<KGCoreResult<List<UserSummary>>> putUserinvitation(@PathVariable("id") String id, @PathVariable("userId") String userId) {
+        return Helpers.withUserToken(instanceClient.requestAddInvitation(id, userId).then(Mono.defer(() -> instanceClient.requestInvitedUsers(id))));
     }
 }
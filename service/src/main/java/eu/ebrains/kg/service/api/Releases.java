@@ -26,6 +26,7 @@ package eu.ebrains.kg.service.api;
 import eu.ebrains.kg.service.models.KGCoreResult;
 import eu.ebrains.kg.service.services.ReleaseClient;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 import java.util.Map;
@@ -41,18 +42,19 @@ public class Releases {
     }
 
     @PutMapping("/{id}/release")
-    public void putInstanceRelease(@PathVariable("id") String id) {
-        releaseClient.putRelease(id);
+    public Mono<Void> putInstanceRelease(@PathVariable("id") String id) {
+        return releaseClient.requestRelease(id);
     }
 
     @DeleteMapping("/{id}/release")
-    public void deleteInstanceRelease(@PathVariable("id") String id) {
-        releaseClient.deleteRelease(id);
+    public Mono<Void> deleteInstanceRelease(@PathVariable("id") String id) {
+        return releaseClient.requestReleaseDeletion(id);
     }
 
     @PostMapping("/status")
-    public KGCoreResult<Map<String, KGCoreResult<String>>> getReleaseStatus(@RequestParam(value = "releaseTreeScope", required = false) String releaseTreeScope, @RequestBody List<String> ids) {
-        Map<String, KGCoreResult<String>> releaseStatus = releaseClient.getReleaseStatus(ids, releaseTreeScope);
-        return new KGCoreResult<Map<String, KGCoreResult<String>>>().setData(releaseStatus);
+    public Mono<KGCoreResult<Map<String, KGCoreResult<String>>>> getReleaseStatus(@RequestParam(value = "releaseTreeScope", required = false) String releaseTreeScope, @RequestBody List<String> ids) {
+        return releaseClient.requestReleaseStatus(ids, releaseTreeScope)
+                .map(releaseStatus -> new KGCoreResult<Map<String, KGCoreResult<String>>>().setData(releaseStatus))
+                .defaultIfEmpty(new KGCoreResult<>());
     }
 }
@@ -23,6 +23,8 @@
 
 package eu.ebrains.kg.service.api;
 
+import eu.ebrains.kg.service.helpers.AdaptiveConcurrencyLimiter;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -59,6 +61,11 @@ public class RestControllerAdvice {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
     }
 
+    @ExceptionHandler({AdaptiveConcurrencyLimiter.LimitExceededException.class})
+    protected ResponseEntity<Object> serviceUnavailable(RuntimeException ex, WebRequest request) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+
     @ExceptionHandler({IllegalArgumentException.class})
     protected ResponseEntity<Object> illegalArgument(RuntimeException ex, WebRequest request) {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
@@ -23,6 +23,7 @@
 
 package eu.ebrains.kg.service.api;
 
+import eu.ebrains.kg.service.helpers.BlockingTasks;
 import eu.ebrains.kg.service.models.KGCoreResult;
 import eu.ebrains.kg.service.services.AuthClient;
 import io.swagger.v3.oas.annotations.Operation;
@@ -33,6 +34,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -42,14 +44,16 @@ import java.util.Map;
 public class Settings {
 
     private final AuthClient authClient;
+    private final BlockingTasks blockingTasks;
 
-    public Settings(AuthClient authClient) {
+    public Settings(AuthClient authClient, BlockingTasks blockingTasks) {
         this.authClient = authClient;
+        this.blockingTasks = blockingTasks;
     }
 
     @Operation(summary = "Get settings")
     @GetMapping
-    public ResponseEntity getSettings(
+    public Mono<ResponseEntity> getSettings(
             @Value("${eu.ebrains.kg.commit}") String commit,
             @Value("${keycloak.realm}") String keycloakRealm ,
             @Value("${keycloak.resource}") String keycloakClientId,
@@ -58,8 +62,8 @@ public class Settings {
             @Value("${matomo.url}") String matomoUrl,
             @Value("${matomo.siteId}") String matomoSiteId
     ) {
-        String authEndpoint = authClient.getEndpoint();
-        if (StringUtils.isNotBlank(authEndpoint)) {
+        // The endpoint is only requested from kg-core once (see AuthClient)
+        return blockingTasks.supply(authClient::getEndpoint).<ResponseEntity>map(authEndpoint -> {
             KGCoreResult.Single result = new KGCoreResult.Single();
             Map<String, Object> settings = new HashMap<>();
             settings.put("keycloak", Map.of(
@@ -87,7 +91,6 @@ public class Settings {
             }
             result.setData(settings);
             return ResponseEntity.ok(result);
-        }
-        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }).defaultIfEmpty(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
     }
 }
@@ -24,10 +24,17 @@
 package eu.ebrains.kg.service.api;
 
 import eu.ebrains.kg.service.controllers.SpaceController;
+import eu.ebrains.kg.service.helpers.BlockingTasks;
+import eu.ebrains.kg.service.models.ETaggedBody;
 import eu.ebrains.kg.service.models.KGCoreResult;
 import eu.ebrains.kg.service.models.type.StructureOfType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
@@ -36,32 +43,41 @@ import java.util.List;
 public class Spaces {
 
     private final SpaceController spaceController;
+    private final BlockingTasks blockingTasks;
 
-    public Spaces(SpaceController spaceController) {
+    public Spaces(SpaceController spaceController, BlockingTasks blockingTasks) {
         this.spaceController = spaceController;
+        this.blockingTasks = blockingTasks;
     }
 
     @GetMapping("/{space}/types")
-    public KGCoreResult<List<StructureOfType>> getSpaceTypes(@PathVariable("space") String space) {
-        List<StructureOfType> spaceTypes = spaceController.getTypes(space);
-        return new KGCoreResult<List<StructureOfType>>().setData(spaceTypes);
+    public Mono<ResponseEntity<byte[]>> getSpaceTypes(@PathVariable("space") String space, @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return blockingTasks.supply(() -> {
+            ETaggedBody spaceTypes = spaceController.getSerializedTypes(space);
+            if (spaceTypes.matches(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(spaceTypes.getETag()).build();
+            }
+            return ResponseEntity.ok().eTag(spaceTypes.getETag()).contentType(MediaType.APPLICATION_JSON).body(spaceTypes.getBody());
+        });
     }
 
     @PostMapping("/{space}/types")
-    public KGCoreResult<List<StructureOfType>> addTypesToSpace(@PathVariable("space") String space, @RequestBody(required = true) List<String> types) {
-        spaceController.addTypesToSpace(space, types);
-        List<StructureOfType> relatedTypes = spaceController.getTypesByName(types, space);
-        return new KGCoreResult<List<StructureOfType>>().setData(relatedTypes);
+    public Mono<KGCoreResult<List<StructureOfType>>> addTypesToSpace(@PathVariable("space") String space, @RequestBody(required = true) List<String> types) {
+        return blockingTasks.supply(() -> {
+            spaceController.addTypesToSpace(space, types);
+            List<StructureOfType> relatedTypes = spaceController.getTypesByName(types, space);
+            return new KGCoreResult<List<StructureOfType>>().setData(relatedTypes);
+        });
     }
 
     @DeleteMapping("/{space}/types")
-    public void removeTypeFromSpace(@PathVariable("space") String space, @RequestParam("type") String type) {
-        spaceController.removeTypeFromSpace(space, type);
+    public Mono<Void> removeTypeFromSpace(@PathVariable("space") String space, @RequestParam("type") String type) {
+        return blockingTasks.run(() -> spaceController.removeTypeFromSpace(space, type));
     }
 
     @PostMapping("/{space}/initialize")
-    public void initializeSpace(@PathVariable("space") String space, @RequestBody(required = false) List<String> types) {
-        spaceController.initialize(space, types);
+    public Mono<Void> initializeSpace(@PathVariable("space") String space, @RequestBody(required = false) List<String> types) {
+        return blockingTasks.run(() -> spaceController.initialize(space, types));
     }
 
 }
@@ -24,21 +24,25 @@
 package eu.ebrains.kg.service.api;
 
 import eu.ebrains.kg.service.controllers.IdController;
+import eu.ebrains.kg.service.controllers.TypeController;
+import eu.ebrains.kg.service.helpers.BlockingTasks;
+import eu.ebrains.kg.service.helpers.ConcurrentCalls;
+import eu.ebrains.kg.service.models.InstanceView;
 import eu.ebrains.kg.service.models.KGCoreResult;
-import eu.ebrains.kg.service.models.ResultWithOriginalMap;
+import eu.ebrains.kg.service.models.instance.FieldValue;
 import eu.ebrains.kg.service.models.instance.InstanceSummary;
-import eu.ebrains.kg.service.models.type.SimpleType;
 import eu.ebrains.kg.service.models.type.StructureOfField;
 import eu.ebrains.kg.service.models.type.StructureOfType;
 import eu.ebrains.kg.service.services.InstanceClient;
 import eu.ebrains.kg.service.services.SpaceClient;
-import org.apache.commons.lang3.SerializationUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
 
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @RequestMapping("/summary")
@@ -49,64 +53,64 @@ public class Summary {
     private final IdController idController;
     private final InstanceClient instanceClient;
     private final SpaceClient spaceClient;
+    private final TypeController typeController;
+    private final ConcurrentCalls concurrentCalls;
+    private final BlockingTasks blockingTasks;
 
-    public Summary(IdController idController, InstanceClient instanceClient, SpaceClient spaceClient) {
+    public Summary(IdController idController, InstanceClient instanceClient, SpaceClient spaceClient, TypeController typeController, ConcurrentCalls concurrentCalls, BlockingTasks blockingTasks) {
         this.idController = idController;
         this.instanceClient = instanceClient;
         this.spaceClient = spaceClient;
+        this.typeController = typeController;
+        this.concurrentCalls = concurrentCalls;
+        this.blockingTasks = blockingTasks;
     }
 
     @GetMapping
     //FIXME The pagination parameters differ from the one in instances -> they should be homogenized.
     //TODO check if it would make sense to introduce a default pagination
-    public KGCoreResult<List<InstanceSummary>> searchInstancesSummary(@RequestParam("space") String space, @RequestParam("type") String type, @RequestParam(required = false, value = "from") Integer from, @RequestParam(required = false, value = "size") Integer size, @RequestParam(value = "searchByLabel", required = false) String searchByLabel) {
-        KGCoreResult<List<ResultWithOriginalMap<InstanceSummary>>> result = instanceClient.searchInstanceSummaries(space, type, from, size, searchByLabel);
+    public Mono<KGCoreResult<List<InstanceSummary>>> searchInstancesSummary(@RequestParam("space") String space, @RequestParam("type") String type, @RequestParam(required = false, value = "from") Integer from, @RequestParam(required = false, value = "size") Integer size, @RequestParam(value = "searchByLabel", required = false) String searchByLabel) {
+        return blockingTasks.supply(() -> getInstancesSummary(space, type, from, size, searchByLabel));
+    }
 
-        // We're fetching the root type with properties to receive the information about the label field and the search fields.
-        Map<String, KGCoreResult<StructureOfType>> typesByName = spaceClient.getTypesByName(Collections.singletonList(type), true);
+    private KGCoreResult<List<InstanceSummary>> getInstancesSummary(String space, String type, Integer from, Integer size, String searchByLabel) {
+        KGCoreResult<List<InstanceView<InstanceSummary>>> result;
+        Map<String, KGCoreResult<StructureOfType>> typesByName;
+        try (ConcurrentCalls.Scope calls = concurrentCalls.open()) {
+            Supplier<KGCoreResult<List<InstanceView<InstanceSummary>>>> instances = calls.fork(() -> instanceClient.searchInstanceSummaries(space, type, from, size, searchByLabel));
+            // We're fetching the root type with properties to receive the information about the label field and the search fields.
+            Supplier<Map<String, KGCoreResult<StructureOfType>>> rootType = calls.fork(() -> spaceClient.getTypesByName(Collections.singletonList(type), true));
+            calls.join();
+            result = instances.get();
+            typesByName = rootType.get();
+        }
         if(typesByName == null || typesByName.get(type) == null || typesByName.get(type).getData() == null){
             throw new IllegalArgumentException(String.format("Was not able to find the type definition for \"%s\"", type));
         }
         StructureOfType rootType = typesByName.get(type).getData();
         String rootLabelField =  rootType.getLabelField();
         Set<StructureOfField> searchableFields = rootType.getFields().values().stream().filter(f -> f.getSearchable()!=null && f.getSearchable() && !f.getFullyQualifiedName().equals(rootLabelField)).collect(Collectors.toSet());
-        List<String> otherTypes = result.getData().stream().map(r -> r.getResult().getTypes()).flatMap(Collection::stream).map(SimpleType::getName).filter(t -> !t.equals(type)).distinct().toList();
-        if(!otherTypes.isEmpty()) {
-            Map<String, KGCoreResult<StructureOfType>> otherTypesByName = spaceClient.getTypesByName(otherTypes, false);
-            if(otherTypesByName!=null) {
-                typesByName.putAll(otherTypesByName);
-            }
-        }
+        //Enrich the simple type information from the type metadata
+        typeController.enrichSimpleTypes(result.getData().stream().map(r -> r.getResult().getTypes()).flatMap(Collection::stream).toList());
         List<InstanceSummary> instanceSummary = result.getData().stream().map(r -> {
             if (rootLabelField != null) {
-                Object labelValue = r.getOriginalMap().get(rootLabelField);
+                Object labelValue = r.getValue(rootLabelField);
                 if (labelValue != null) {
                     r.getResult().setName(labelValue.toString());
                 }
             }
             r.getResult().setFields(searchableFields.stream().map(f -> {
-                //We're assigning the value of the instance to the StructureOfField -> we therefore need to clone it
-                StructureOfField clone = SerializationUtils.clone(f);
-                Object valueOfSearchField = r.getOriginalMap().get(f.getFullyQualifiedName());
+                //The structure of the field is shared between the instances - the value is kept separately
+                Object valueOfSearchField = r.getValue(f.getFullyQualifiedName());
                 if(valueOfSearchField instanceof Map<?, ?> && ((Map<?, ?>) valueOfSearchField).containsKey("@id")) {
                     String id = (String) ((Map<?, ?>) valueOfSearchField).get("@id");
                     UUID uuid = idController.simplifyFullyQualifiedId(id);
                     ((Map)valueOfSearchField).put("@id", uuid.toString());
 
                 }
-                clone.setValue(valueOfSearchField);
-                return clone;
-            }).collect(Collectors.toMap(StructureOfField::getFullyQualifiedName, v->v)));
+                return new FieldValue(f, valueOfSearchField);
+            }).collect(Collectors.toMap(FieldValue::getFullyQualifiedName, v->v)));
 
-            r.getResult().getTypes().forEach(t -> {
-                KGCoreResult<StructureOfType> byName = typesByName.get(t.getName());
-                if (byName != null && byName.getData() != null) {
-                    //Enrich the simple type information from the structure of type...
-                    t.setLabel(byName.getData().getLabel());
-                    t.setColor(byName.getData().getColor());
-                    t.setDescription(byName.getData().getDescription());
-                }
-            });
             idController.simplifyId(r.getResult());
             return r.getResult();
         }).toList();
@@ -24,9 +24,11 @@
 package eu.ebrains.kg.service.api;
 
 import eu.ebrains.kg.service.controllers.SpaceController;
+import eu.ebrains.kg.service.helpers.BlockingTasks;
 import eu.ebrains.kg.service.models.KGCoreResult;
 import eu.ebrains.kg.service.models.type.StructureOfType;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
@@ -35,14 +37,20 @@ import java.util.List;
 public class Types {
 
     private final SpaceController spaceController;
+    private final BlockingTasks blockingTasks;
 
-    public Types(SpaceController spaceController) {
+    public Types(SpaceController spaceController, BlockingTasks blockingTasks) {
         this.spaceController = spaceController;
+        this.blockingTasks = blockingTasks;
     }
 
     @GetMapping
-    public KGCoreResult<List<StructureOfType>> getSpaceAvailableTypes(@RequestParam("space") String space) {
-        List<StructureOfType> spaceTypes = spaceController.getSpaceAvailableTypes(space);
-        return new KGCoreResult<List<StructureOfType>>().setData(spaceTypes);
+    public Mono<KGCoreResult<List<StructureOfType>>> getSpaceAvailableTypes(@RequestParam("space") String space) {
+        return blockingTasks.supply(() -> new KGCoreResult<List<StructureOfType>>().setData(spaceController.getSpaceAvailableTypes(space)));
+    }
+
+    @GetMapping("/version")
+    public KGCoreResult<String> getTypesVersion() {
+        return new KGCoreResult<String>().setData(spaceController.getTypesVersion());
     }
 }
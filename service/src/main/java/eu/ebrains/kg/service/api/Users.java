@@ -35,7 +35,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import reactor.core.publisher.Mono;
+
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -57,27 +60,27 @@ public class Users {
         return (w.getClientSpace() == null || !w.getClientSpace()) && (w.getInternalSpace() == null || !w.getInternalSpace()) && (w.getPermissions() != null && w.getPermissions().isCanRead());
     }
 
+    /**
+     * The profile and the spaces are requested concurrently and without holding a servlet thread while waiting for kg-core.
+     */
     @GetMapping("/me")
-    public KGCoreResult<UserProfile> getUserProfile() {
-        UserProfile userProfile = userClient.getUserProfile();
-        if(userProfile!=null) {
+    public Mono<KGCoreResult<UserProfile>> getUserProfile() {
+        // Both requests have to be created in the request thread (for the user token)
+        Mono<UserProfile> profile = userClient.requestUserProfile();
+        Mono<Optional<List<Space>>> spaces = spaceClient.requestSpaces().map(Optional::of).defaultIfEmpty(Optional.empty());
+        return profile.zipWith(spaces, (userProfile, userSpaces) -> {
             UUID uuid = idController.simplifyFullyQualifiedId(userProfile.getId());
             if(uuid!=null) {
                 userProfile.setId(uuid.toString());
             }
-            List<Space> spaces = spaceClient.getSpaces();
-            if (spaces != null) {
-                List<Space> filteredSpaces = spaces.stream().filter(Users::isUserRelevantSpace).toList();
-                userProfile.setSpaces(filteredSpaces);
-            }
+            userSpaces.ifPresent(s -> userProfile.setSpaces(s.stream().filter(Users::isUserRelevantSpace).toList()));
             return new KGCoreResult<UserProfile>().setData(userProfile);
-        }
-        return null;
+        });
     }
 
     @GetMapping("/search")
-    public KGCoreResult<List<UserSummary>> getUsers(@RequestParam(value = "search", required = false) String search) {
-        return new KGCoreResult<List<UserSummary>>().setData(userClient.getUsers(search));
+    public Mono<KGCoreResult<List<UserSummary>>> getUsers(@RequestParam(value = "search", required = false) String search) {
+        return userClient.requestUsers(search).map(users -> new KGCoreResult<List<UserSummary>>().setData(users));
     }
 
 }
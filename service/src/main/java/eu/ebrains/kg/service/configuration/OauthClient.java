@@ -23,6 +23,7 @@
 
 package eu.ebrains.kg.service.configuration;
 
+import eu.ebrains.kg.service.helpers.Helpers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -34,10 +35,11 @@ import org.springframework.security.oauth2.client.RemoveAuthorizedClientOAuth2Au
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.security.oauth2.client.web.reactive.function.client.ServletOAuth2AuthorizedClientExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
-import javax.servlet.http.HttpServletRequest;
 import java.util.List;
 
 @Configuration
@@ -53,7 +55,7 @@ public class OauthClient {
     private final Logger logger = LoggerFactory.getLogger(getClass());
     @Bean
     @Qualifier("asUserWithServiceAccount")
-    WebClient userWithServiceAccountWebClient(ClientRegistrationRepository clientRegistrations, OAuth2AuthorizedClientService authorizedClientService, HttpServletRequest request) {
+    WebClient userWithServiceAccountWebClient(ClientRegistrationRepository clientRegistrations, OAuth2AuthorizedClientService authorizedClientService) {
         AuthorizedClientServiceOAuth2AuthorizedClientManager clientManager = new AuthorizedClientServiceOAuth2AuthorizedClientManager(clientRegistrations, authorizedClientService);
         ServletOAuth2AuthorizedClientExchangeFilterFunction oauth2 =  new ServletOAuth2AuthorizedClientExchangeFilterFunction(clientManager);
         oauth2.setAuthorizationFailureHandler(new RemoveAuthorizedClientOAuth2AuthorizationFailureHandler(
@@ -63,7 +65,7 @@ public class OauthClient {
                 })
         );
         oauth2.setDefaultClientRegistrationId("kg");
-        return WebClient.builder().exchangeStrategies(exchangeStrategies).apply(oauth2.oauth2Configuration()).filter((clientRequest, nextFilter) ->{
+        return WebClient.builder().exchangeStrategies(exchangeStrategies).apply(oauth2.oauth2Configuration()).filter(userTokenFromContext(USER_AUTHORIZATION_KEY)).filter((clientRequest, nextFilter) ->{
             ClientRequest updatedHeaders = ClientRequest.from(clientRequest).headers(h -> {
                 //Spring adds the oauth2 bearer token to the standard "Authorization" header -> we want it to be sent as
                 // "Client-Authorization" though to let the user token be handed in properly.
@@ -73,24 +75,58 @@ public class OauthClient {
                 h.remove(USER_AUTHORIZATION_KEY);
             }).build();
             return nextFilter.exchange(updatedHeaders);
-        }).defaultRequest(r ->
+        }).defaultRequest(r -> {
             /**
              *  We have to add the user access token to the request here, because this consumer is executed in the original
              *  thread and we therefore have access to the original request. We store it in a temporary header since otherwise
              *  it would be overwritten by the above exchange filter.
              */
-            r.header(USER_AUTHORIZATION_KEY, request.getHeader(AUTHORIZATION_KEY))
-        ).build();
+            String authorization = Helpers.getAuthorization();
+            if (authorization != null) {
+                r.header(USER_AUTHORIZATION_KEY, authorization);
+            }
+        }).build();
     }
+    @Bean
+    @Qualifier("asServiceAccount")
+    WebClient serviceAccountWebClient(ClientRegistrationRepository clientRegistrations, OAuth2AuthorizedClientService authorizedClientService) {
+        /**
+         * This client is used outside the scope of a user request (e.g. by scheduled tasks) and therefore only provides
+         * the token of the service account.
+         */
+        AuthorizedClientServiceOAuth2AuthorizedClientManager clientManager = new AuthorizedClientServiceOAuth2AuthorizedClientManager(clientRegistrations, authorizedClientService);
+        ServletOAuth2AuthorizedClientExchangeFilterFunction oauth2 =  new ServletOAuth2AuthorizedClientExchangeFilterFunction(clientManager);
+        oauth2.setDefaultClientRegistrationId("kg");
+        return WebClient.builder().exchangeStrategies(exchangeStrategies).apply(oauth2.oauth2Configuration()).build();
+    }
+
     @Bean
     @Qualifier("asUserOnly")
-    WebClient userOnlyWebClient(HttpServletRequest request) {
-        return WebClient.builder().exchangeStrategies(exchangeStrategies).defaultRequest(r -> {
+    WebClient userOnlyWebClient() {
+        return WebClient.builder().exchangeStrategies(exchangeStrategies).filter(userTokenFromContext(AUTHORIZATION_KEY)).defaultRequest(r -> {
             /**
              * We just reuse the original authorization header for the given request and we
              * explicitly don't want a client authorization
              */
-            r.header(AUTHORIZATION_KEY, request.getHeader(AUTHORIZATION_KEY));
+            String authorization = Helpers.getAuthorization();
+            if (authorization != null) {
+                r.header(AUTHORIZATION_KEY, authorization);
+            }
         }).build();
     }
+
+    /**
+     * Requests which are built outside of the thread of the user request (e.g. in a callback of another call) can't read
+     * the user token from the request - they take it from the reactor context instead (see {@link Helpers#withUserToken(Mono)}).
+     */
+    private static ExchangeFilterFunction userTokenFromContext(String header) {
+        return (clientRequest, nextFilter) -> {
+            if (clientRequest.headers().getFirst(header) != null) {
+                return nextFilter.exchange(clientRequest);
+            }
+            return Mono.deferContextual(context -> nextFilter.exchange(context.<String>getOrEmpty(AUTHORIZATION_KEY)
+                    .map(authorization -> ClientRequest.from(clientRequest).header(header, authorization).build())
+                    .orElse(clientRequest)));
+        };
+    }
 }
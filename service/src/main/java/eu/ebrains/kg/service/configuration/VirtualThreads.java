@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ */
+
+package eu.ebrains.kg.service.configuration;
+
+import eu.ebrains.kg.service.helpers.BlockingTasks;
+import eu.ebrains.kg.service.helpers.ConcurrentCalls;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in mode ("kg.threads.virtual") in which the servlet requests, the independent calls of a request to kg-core
+ * (see {@link ConcurrentCalls}) and the blocking stages of the reactive endpoints (see {@link BlockingTasks}) are run
+ * on virtual threads. A thread waiting for kg-core then doesn't block a thread of a limited pool anymore. Virtual
+ * threads require the service to run on JDK 21 or later - on older runtimes, the mode is ignored (with a warning) and
+ * the requests are handled as before.
+ */
+@Configuration
+public class VirtualThreads {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final ExecutorService executor;
+
+    public VirtualThreads(@Value("${kg.threads.virtual:false}") boolean enabled) {
+        this.executor = enabled ? createVirtualThreadExecutor() : null;
+    }
+
+    private ExecutorService createVirtualThreadExecutor() {
+        try {
+            // Resolved at runtime since the service is still built for JDK 17
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.warn("Virtual threads are not available in Java {} - requests are handled by platform threads", Runtime.version());
+            return null;
+        }
+    }
+
+    @Bean
+    ConcurrentCalls concurrentCalls() {
+        return new ConcurrentCalls(executor);
+    }
+
+    @Bean
+    BlockingTasks blockingTasks() {
+        return new BlockingTasks(executor);
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = "kg.threads.virtual", havingValue = "true")
+    WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadsForRequests() {
+        return factory -> {
+            if (executor != null) {
+                factory.addProtocolHandlerCustomizers(protocolHandler -> protocolHandler.setExecutor(executor));
+            }
+        };
+    }
+}
@@ -23,26 +23,39 @@
 
 package eu.ebrains.kg.service.controllers;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.ebrains.kg.service.helpers.ConcurrentCalls;
 import eu.ebrains.kg.service.helpers.Helpers;
+import eu.ebrains.kg.service.models.ETaggedBody;
 import eu.ebrains.kg.service.models.HasId;
+import eu.ebrains.kg.service.models.InstanceView;
 import eu.ebrains.kg.service.models.KGCoreResult;
-import eu.ebrains.kg.service.models.ResultWithOriginalMap;
 import eu.ebrains.kg.service.models.commons.UserSummary;
 import eu.ebrains.kg.service.models.instance.*;
+import eu.ebrains.kg.service.models.type.FormSchema;
 import eu.ebrains.kg.service.models.type.SimpleType;
 import eu.ebrains.kg.service.models.type.StructureOfField;
 import eu.ebrains.kg.service.models.type.StructureOfIncomingLink;
 import eu.ebrains.kg.service.models.type.StructureOfType;
+import eu.ebrains.kg.service.services.FormSchemaCache;
+import eu.ebrains.kg.service.services.InstanceValidatorCache;
 import eu.ebrains.kg.service.services.ReleaseClient;
 import eu.ebrains.kg.service.services.UserClient;
 import eu.ebrains.kg.service.services.SpaceClient;
-import org.apache.commons.lang3.SerializationUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -54,59 +67,172 @@ public class InstanceController {
     private final SpaceClient spaceClient;
     private final ReleaseClient releaseClient;
     private final IdController idController;
-
-    public InstanceController(SpaceClient spaceClient, ReleaseClient releaseClient, IdController idController, @Value("${kg.inferenceUser}") String kgInferenceUser) {
+    private final TypeController typeController;
+    private final FormSchemaCache formSchemaCache;
+    private final InstanceValidatorCache validatorCache;
+    private final ObjectMapper objectMapper;
+    private final int enrichmentParallelism;
+    private final int enrichmentParallelThreshold;
+    private final ExecutorService enrichmentExecutor;
+    private final ConcurrentCalls concurrentCalls;
+
+    public InstanceController(SpaceClient spaceClient, ReleaseClient releaseClient, IdController idController, TypeController typeController, FormSchemaCache formSchemaCache, InstanceValidatorCache validatorCache, ObjectMapper jacksonObjectMapper, MeterRegistry meterRegistry, ConcurrentCalls concurrentCalls,
+                              @Value("${kg.inferenceUser}") String kgInferenceUser, @Value("${kg.instances.enrichment.parallelism}") int enrichmentParallelism, @Value("${kg.instances.enrichment.parallelThreshold}") int enrichmentParallelThreshold) {
         this.spaceClient = spaceClient;
         this.releaseClient = releaseClient;
         this.idController = idController;
+        this.typeController = typeController;
+        this.formSchemaCache = formSchemaCache;
+        this.validatorCache = validatorCache;
+        this.objectMapper = jacksonObjectMapper;
+        this.concurrentCalls = concurrentCalls;
         this.kgInferenceUser = kgInferenceUser;
+        this.enrichmentParallelism = enrichmentParallelism > 0 ? enrichmentParallelism : Runtime.getRuntime().availableProcessors();
+        this.enrichmentParallelThreshold = enrichmentParallelThreshold;
+        this.enrichmentExecutor = ExecutorServiceMetrics.monitor(meterRegistry, createEnrichmentExecutor(this.enrichmentParallelism), "instance-enrichment");
+    }
+
+    private static ExecutorService createEnrichmentExecutor(int parallelism) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(parallelism * 4), r -> {
+            Thread thread = new Thread(r, "instance-enrichment");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public InstanceFull enrichInstance(InstanceView<InstanceFull> instanceView) {
+        return enrichInstance(instanceView, InstanceProjection.ALL);
     }
 
-    public InstanceFull enrichInstance(ResultWithOriginalMap<InstanceFull> instanceWithMap) {
-        if (instanceWithMap.getResult() != null) {
-            InstanceFull instance = idController.simplifyId(instanceWithMap.getResult());
-            Map<String, StructureOfType> typesByName = getTypesByName(instance);
-            enrichTypesByNameWithIncomingLinksTypes(instance, typesByName);
-            enrichInstanceWithPossibleIncomingLinks(instance, typesByName);
-            enrichTypesAndFields(instance, instanceWithMap.getOriginalMap(), typesByName);
-            Helpers.enrichFieldsTargetTypes(getTargetTypes(instance, typesByName), instance.getFields());
+    public InstanceFull enrichInstance(InstanceView<InstanceFull> instanceView, InstanceProjection projection) {
+        return enrichInstance(instanceView, projection, new HashSet<>());
+    }
+
+    /**
+     * @param involvedTypes collects the names of all types the enriched instance has been derived from
+     */
+    private InstanceFull enrichInstance(InstanceView<InstanceFull> instanceView, InstanceProjection projection, Set<String> involvedTypes) {
+        if (instanceView.getResult() != null) {
+            InstanceFull instance = idController.simplifyId(instanceView.getResult());
+            Map<String, StructureOfType> typesByName = getTypesByName(instance, projection.includesPossibleIncomingLinks());
+            if (projection.includesPossibleIncomingLinks()) {
+                enrichTypesByNameWithIncomingLinksTypes(instance, typesByName);
+                enrichInstanceWithPossibleIncomingLinks(instance, typesByName);
+            }
+            FormSchema formSchema = enrichTypesAndFields(instance, instanceView, typesByName, projection);
             enrichAlternativesAndInference(instance);
+            if (typesByName != null) {
+                involvedTypes.addAll(typesByName.keySet());
+            }
+            if (formSchema != null) {
+                involvedTypes.addAll(formSchema.getTypes());
+            }
             return instance;
         }
         return null;
     }
 
-    public Map<String, InstanceFull> enrichInstances(Map<String, ResultWithOriginalMap<InstanceFull>> instancesWithMap, String stage) {
-        simplifyIdsOfInstances(instancesWithMap);
-        Collection<ResultWithOriginalMap<InstanceFull>> instancesWithResult = instancesWithMap.values();
-        Map<String, StructureOfType> typesByName = getTypesByName(instancesWithResult, true);
-        enrichTypesByNameWithIncomingLinksTypes(instancesWithResult, typesByName);
-        instancesWithResult.forEach(instanceWithResult -> {
+    /**
+     * @param payload the instance as it has been returned by kg-core
+     * @param instanceView the view of the payload - only read if the instance has to be enriched
+     * @param ifNoneMatch the "If-None-Match" header of the request (can be null)
+     * @param withIncomingLinks if false, the incoming links and the possible incoming links are left out
+     * @return the serialized enriched instance. If the client already has its current version and we know it for this
+     * user, the instance is not enriched again and only the ETag is returned.
+     */
+    public ETaggedBody getSerializedInstance(String id, byte[] payload, Supplier<InstanceView<InstanceFull>> instanceView, String ifNoneMatch, boolean withIncomingLinks) {
+        String revision = getRevision(payload);
+        // The same payload results in a different document with and without incoming links
+        String validatorId = withIncomingLinks ? id : String.format("%s|withoutIncomingLinks", id);
+        String knownETag = validatorCache.get(validatorId, revision);
+        if (ETaggedBody.matches(knownETag, ifNoneMatch)) {
+            return ETaggedBody.withoutBody(knownETag);
+        }
+        String typesGeneration = validatorCache.getTypesGeneration();
+        Set<String> involvedTypes = new HashSet<>();
+        InstanceFull instanceFull = enrichInstance(instanceView.get(), withIncomingLinks ? InstanceProjection.ALL : InstanceProjection.WITHOUT_INCOMING_LINKS, involvedTypes);
+        try {
+            ETaggedBody body = ETaggedBody.of(objectMapper.writeValueAsBytes(new KGCoreResult<InstanceFull>().setData(instanceFull)));
+            validatorCache.put(validatorId, revision, involvedTypes, typesGeneration, body.getETag());
+            return body;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return a fingerprint of the instance in the given kg-core response - the envelope around it (e.g. startTime or
+     * durationInMs) changes with every call and is therefore left out
+     */
+    private String getRevision(byte[] payload) {
+        try {
+            JsonNode data = objectMapper.readTree(payload).get("data");
+            return Helpers.fingerprint(data != null ? objectMapper.writeValueAsBytes(data) : payload);
+        } catch (IOException e) {
+            return Helpers.fingerprint(payload);
+        }
+    }
+
+    /**
+     * Enriches the instances with the parts of the given projection only
+     */
+    public Map<String, InstanceFull> enrichInstances(Map<String, InstanceView<InstanceFull>> instanceViews, String stage, InstanceProjection projection) {
+        simplifyIdsOfInstances(instanceViews);
+        Collection<InstanceView<InstanceFull>> instancesWithResult = instanceViews.values();
+        Map<String, StructureOfType> typesByName = getTypesByName(instancesWithResult.stream().map(InstanceView::getResult).filter(Objects::nonNull).toList(), true, projection.includesPossibleIncomingLinks());
+        if (projection.includesPossibleIncomingLinks()) {
+            enrichTypesByNameWithIncomingLinksTypes(instancesWithResult, typesByName);
+        }
+        forEachInParallel(instancesWithResult, instanceWithResult -> {
             InstanceFull instance = instanceWithResult.getResult();
             if (instance != null && instance.getId()!=null) {
-                enrichInstanceWithPossibleIncomingLinks(instance, typesByName);
-                enrichTypesAndFields(instance, instanceWithResult.getOriginalMap(), typesByName);
-                if (stage.equals("IN_PROGRESS")) {
+                if (projection.includesPossibleIncomingLinks()) {
+                    enrichInstanceWithPossibleIncomingLinks(instance, typesByName);
+                }
+                enrichTypesAndFields(instance, instanceWithResult, typesByName, projection);
+                if (projection.includesAlternatives() && stage.equals("IN_PROGRESS")) {
                     enrichAlternativesAndInference(instance);
                 }
             }
         });
-        enrichFieldsTargetTypes(instancesWithResult, typesByName);
         Map<String, InstanceFull> result = new HashMap<>();
-        instancesWithMap.forEach((k, v) -> result.put(k, v.getResult()));
+        instanceViews.forEach((k, v) -> result.put(k, v.getResult()));
         return result;
     }
 
-    private void enrichFieldsTargetTypes(Collection<ResultWithOriginalMap<InstanceFull>> instancesWithResult, Map<String, StructureOfType> typesByName) {
-        Map<String, StructureOfType> targetTypes = getTargetTypes(instancesWithResult, typesByName);
-        instancesWithResult.forEach(instanceWithResult -> {
-            InstanceFull instance = instanceWithResult.getResult();
-            if (instance != null) {
-                Helpers.enrichFieldsTargetTypes(targetTypes, instance.getFields());
+    /**
+     * Applies the action to the given elements - if there are enough of them, they are split into slices which are
+     * processed in parallel on the enrichment executor. If the executor is saturated, the calling thread processes
+     * the slice itself.
+     */
+    private <T> void forEachInParallel(Collection<T> elements, Consumer<T> action) {
+        if (elements.size() < enrichmentParallelThreshold || enrichmentParallelism < 2) {
+            elements.forEach(action);
+            return;
+        }
+        List<T> list = new ArrayList<>(elements);
+        int sliceSize = (list.size() + enrichmentParallelism - 1) / enrichmentParallelism;
+        List<CompletableFuture<Void>> slices = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += sliceSize) {
+            List<T> slice = list.subList(i, Math.min(i + sliceSize, list.size()));
+            slices.add(CompletableFuture.runAsync(Helpers.withRequestContext(() -> slice.forEach(action)), enrichmentExecutor));
+        }
+        try {
+            CompletableFuture.allOf(slices.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
             }
-        });
+            throw e;
+        }
     }
 
+    /**
+     * The source types of the incoming links are usually requested together with the types of the instance - only
+     * those the type dependency graph doesn't know about (yet) are loaded here.
+     */
     private void enrichTypesByNameWithIncomingLinksTypes(InstanceFull instance, Map<String, StructureOfType> typesByName) {
         List<String> types = getTypesNamesFromInstance(instance);
         List<String> incomingLinksTypes = new ArrayList<>();
@@ -117,12 +243,10 @@ public class InstanceController {
         }
     }
 
-    private Map<String, StructureOfType> getTargetTypes(Collection<ResultWithOriginalMap<InstanceFull>> instancesWithResult, Map<String, StructureOfType> typesByName) {
-        Set<String> types = new HashSet<>();
+    private Map<String, StructureOfType> getTargetTypes(Map<String, StructureOfField> fields, Map<String, StructureOfType> typesByName) {
         Map<String, StructureOfType> result = new HashMap<>();
         List<String> typeToRetrieve = new ArrayList<>();
-        instancesWithResult.forEach(instance -> types.addAll(getTargetTypesNamesFromInstance(instance.getResult())));
-        types.forEach(t -> {
+        getTargetTypesNames(fields).forEach(t -> {
             if (typesByName.containsKey(t)) {
                 result.put(t, typesByName.get(t));
             } else {
@@ -135,24 +259,7 @@ public class InstanceController {
         return result;
     }
 
-    private Map<String, StructureOfType> getTargetTypes(InstanceSummary instance, Map<String, StructureOfType> typesByName) {
-        Set<String> types = new HashSet<>(getTargetTypesNamesFromInstance(instance));
-        Map<String, StructureOfType> result = new HashMap<>();
-        List<String> typeToRetrieve = new ArrayList<>();
-        types.forEach(t -> {
-            if (typesByName.containsKey(t)) {
-                result.put(t, typesByName.get(t));
-            } else {
-                typeToRetrieve.add(t);
-            }
-        });
-        if (!CollectionUtils.isEmpty(typeToRetrieve)) {
-            result.putAll(getTypesByNameResult(typeToRetrieve, false));
-        }
-        return result;
-    }
-
-    private void enrichTypesByNameWithIncomingLinksTypes(Collection<ResultWithOriginalMap<InstanceFull>> instancesWithResult, Map<String, StructureOfType> typesByName) {
+    private void enrichTypesByNameWithIncomingLinksTypes(Collection<InstanceView<InstanceFull>> instancesWithResult, Map<String, StructureOfType> typesByName) {
         List<String> incomingLinksTypes = new ArrayList<>();
         instancesWithResult.forEach(instance -> {
             List<String> types = getTypesNamesFromInstance(instance.getResult());
@@ -183,6 +290,25 @@ public class InstanceController {
         });
     }
 
+    /**
+     * @return the incoming links instances of the given types can have - the source types are enriched with their
+     * label, color and description.
+     */
+    public Map<String, StructureOfIncomingLink> getPossibleIncomingLinks(List<String> types) {
+        Map<String, StructureOfIncomingLink> possibleIncomingLinks = new HashMap<>();
+        getTypesByNameResult(types, true).values().forEach(t -> {
+            if (t.getIncomingLinks() != null) {
+                possibleIncomingLinks.putAll(t.getIncomingLinks());
+            }
+        });
+        typeController.enrichSimpleTypes(possibleIncomingLinks.values().stream()
+                .filter(Objects::nonNull)
+                .flatMap(l -> l.getSourceTypes().stream())
+                .map(StructureOfIncomingLink.SourceType::getType)
+                .toList());
+        return possibleIncomingLinks;
+    }
+
     private void enrichInstanceWithPossibleIncomingLinks(InstanceFull instance, Map<String, StructureOfType> typesByName) {
         //TODO: check why it is not working
         List<String> types = getTypesNamesFromInstance(instance);
@@ -217,61 +343,61 @@ public class InstanceController {
         }));
     }
 
-    public Map<String, InstanceLabel> enrichInstancesLabel(Map<String, ResultWithOriginalMap<InstanceLabel>> instancesWithMap) {
-        simplifyIdsOfInstances(instancesWithMap);
-        Collection<ResultWithOriginalMap<InstanceLabel>> instancesWithResult = instancesWithMap.values();
-        Map<String, StructureOfType> typesByName = getTypesByName(instancesWithResult, false);
+    public Map<String, InstanceLabel> enrichInstancesLabel(Map<String, InstanceView<InstanceLabel>> instanceViews) {
+        simplifyIdsOfInstances(instanceViews);
+        Collection<InstanceView<InstanceLabel>> instancesWithResult = instanceViews.values();
+        typeController.enrichSimpleTypes(instancesWithResult.stream()
+                .map(InstanceView::getResult)
+                .filter(i -> i != null && i.getTypes() != null)
+                .flatMap(i -> i.getTypes().stream())
+                .toList());
         instancesWithResult.forEach(instanceWithResult -> {
             if (instanceWithResult.getResult() != null) {
-                enrichName(instanceWithResult.getResult(), instanceWithResult.getOriginalMap(), typesByName);
+                enrichName(instanceWithResult.getResult(), instanceWithResult);
             }
         });
         Map<String, InstanceLabel> result = new HashMap<>();
-        instancesWithMap.forEach((k, v) -> result.put(k, v.getResult()));
+        instanceViews.forEach((k, v) -> result.put(k, v.getResult()));
         return result;
     }
 
 
-    public Map<String, InstanceSummary> enrichInstancesSummary(Map<String, ResultWithOriginalMap<InstanceSummary>> instancesWithMap) {
-        simplifyIdsOfInstances(instancesWithMap);
-        Collection<ResultWithOriginalMap<InstanceSummary>> instancesWithResult = instancesWithMap.values();
+    public Map<String, InstanceSummary> enrichInstancesSummary(Map<String, InstanceView<InstanceSummary>> instanceViews) {
+        simplifyIdsOfInstances(instanceViews);
+        Collection<InstanceView<InstanceSummary>> instancesWithResult = instanceViews.values();
         Map<String, StructureOfType> typesByName = getTypesByName(instancesWithResult, true);
         instancesWithResult.forEach(instanceWithResult -> {
             if (instanceWithResult.getResult() != null) {
-                enrichTypesAndSearchableFields(instanceWithResult.getResult(), instanceWithResult.getOriginalMap(), typesByName);
+                enrichTypesAndSearchableFields(instanceWithResult.getResult(), instanceWithResult, typesByName);
             }
         });
         Map<String, InstanceSummary> result = new HashMap<>();
-        instancesWithMap.forEach((k, v) -> result.put(k, v.getResult()));
+        instanceViews.forEach((k, v) -> result.put(k, v.getResult()));
         return result;
     }
 
-    private <T extends HasId> void simplifyIdsOfInstances(Map<String, ResultWithOriginalMap<T>> instancesWithMap) {
-        Collection<ResultWithOriginalMap<T>> instancesWithResult = instancesWithMap.values();
+    private <T extends HasId> void simplifyIdsOfInstances(Map<String, InstanceView<T>> instanceViews) {
+        Collection<InstanceView<T>> instancesWithResult = instanceViews.values();
         instancesWithResult.forEach(i -> idController.simplifyId(i.getResult()));
     }
 
-    public void enrichSimpleType(SimpleType t, Map<String, StructureOfType> typesByName) {
-        StructureOfType structureOfTypeKGCoreResult = typesByName.get(t.getName());
-        if (structureOfTypeKGCoreResult != null) {
-            t.setColor(structureOfTypeKGCoreResult.getColor());
-            t.setLabel(structureOfTypeKGCoreResult.getLabel());
-            t.setLabelField(structureOfTypeKGCoreResult.getLabelField());
-            t.setDescription(structureOfTypeKGCoreResult.getDescription());
-        }
-    }
-
-    private void simplifyIdsOfLinks(StructureOfField field, Map<?, ?> originalMap) {
-        Object fromMap = originalMap.get(field.getFullyQualifiedName());
+    private FieldValue simplifyIdsOfLinks(StructureOfField field, InstanceView<?> instanceView) {
+        Object fromMap = instanceView.getValue(field.getFullyQualifiedName());
+        Object value = null;
         if (fromMap != null) {
             if (Helpers.isNestedField(field)) {
-                Object value = getNestedFieldValue(fromMap, field.getFields());
-                field.setValue(value);
+                value = getNestedFieldValue(fromMap, field.getFields());
             } else {
-                Object value = getFieldValue(fromMap);
-                field.setValue(value);
+                value = getFieldValue(fromMap);
             }
         }
+        return new FieldValue(field, value);
+    }
+
+    private Map<String, FieldValue> simplifyIdsOfLinks(Map<String, StructureOfField> fields, InstanceView<?> instanceView) {
+        Map<String, FieldValue> result = new HashMap<>();
+        fields.forEach((name, field) -> result.put(name, simplifyIdsOfLinks(field, instanceView)));
+        return result;
     }
 
     private Object simplifyIdsOfLinksInNested(Map<String, Object> originalValue, Map<String, StructureOfField> fields) {
@@ -315,40 +441,31 @@ public class InstanceController {
 
     /**
      * The editor UI expects a combined payload. This is why we recombine information of the instance with type information
+     *
+     * @return the form schema the fields have been defined with or null if the types are unknown
      */
-    private void enrichTypesAndFields(InstanceFull instance,
-                                      Map<?, ?> originalMap,
-                                      Map<String, StructureOfType> typesByName) {
+    private FormSchema enrichTypesAndFields(InstanceFull instance,
+                                      InstanceView<InstanceFull> instanceView,
+                                      Map<String, StructureOfType> typesByName,
+                                      InstanceProjection projection) {
         if (typesByName != null) {
             // Fill the type information
-            instance.getTypes().forEach(t -> enrichSimpleType(t, typesByName));
+            typeController.enrichSimpleTypes(instance.getTypes());
 
             // Define the fields with the structure of the type and the values of the instance
-            List<String> types = getTypesNamesFromInstance(instance);
-            Map<String, StructureOfField> fields = getFieldsFromTypes(types, typesByName);
-
-            enrichNestedTypesToInstanceRecursively(fields, typesByName);
-            Helpers.enrichFieldsTargetTypes(typesByName, fields);
-            fields.values().forEach(f -> simplifyIdsOfLinks(f, originalMap));
-            instance.setFields(fields);
+            FormSchema formSchema = getFormSchema(getTypesNamesFromInstance(instance), typesByName);
+            Map<String, StructureOfField> fields = formSchema.getFields();
+            if (!projection.includesAllFields()) {
+                // The values of the fields which are not requested are never read from the payload
+                fields = fields.entrySet().stream()
+                        .filter(f -> projection.includesField(f.getValue().getFullyQualifiedName()))
+                        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            }
+            instance.setFields(simplifyIdsOfLinks(fields, instanceView));
 
             //Define special fields such as promoted and label
-            instance.setPromotedFields(typesByName.values().stream()
-                    .filter(Objects::nonNull)
-                    .map(StructureOfType::getPromotedFields)
-                    .flatMap(Collection::stream)
-                    .distinct()
-                    .toList());
-
-
-            String labelField = instance.getTypes().stream()
-                    .map(SimpleType::getLabelField)
-                    .filter(Objects::nonNull)
-                    .findFirst()
-                    .orElse(null);
-
-
-            instance.setLabelField(labelField);
+            instance.setPromotedFields(formSchema.getPromotedFields());
+            instance.setLabelField(formSchema.getLabelField());
 
             if (instance.getIncomingLinks() != null) {
                 instance.getIncomingLinks()
@@ -366,121 +483,161 @@ public class InstanceController {
                                 }))
                         );
             }
-
+            return formSchema;
         }
+        return null;
     }
 
     private List<String> getTypesNamesFromInstance(InstanceLabel instance) {
         return instance.getTypes() != null ? instance.getTypes().stream().map(SimpleType::getName).filter(Objects::nonNull).collect(Collectors.toList()) : Collections.emptyList();
     }
 
-    private Set<String> getTargetTypesNamesFromInstance(InstanceSummary instance) {
+    private Set<String> getTargetTypesNames(Map<String, StructureOfField> fields) {
         Set<String> result = new HashSet<>();
-        if (instance.getFields() != null) {
-            instance.getFields().forEach((name, field) -> {
-                if (field.getTargetTypes() != null) {
-                    field.getTargetTypes().forEach(targetType -> {
-                        if (StringUtils.isNotBlank(targetType.getName())) {
-                            result.add(targetType.getName());
-                        }
-                    });
-                }
-            });
-        }
+        fields.values().forEach(field -> {
+            if (field.getTargetTypes() != null) {
+                field.getTargetTypes().forEach(targetType -> {
+                    if (StringUtils.isNotBlank(targetType.getName())) {
+                        result.add(targetType.getName());
+                    }
+                });
+            }
+        });
         return result;
     }
 
-    private Map<String, StructureOfField> getFieldsFromTypes(List<String> types, Map<String, StructureOfType> typesByName) {
+    /**
+     * The form schema only depends on the (ordered) types of an instance. It is therefore built once per list of types
+     * and shared by all instances of it - the enrichment of an instance only has to bind its values to the schema.
+     */
+    private FormSchema getFormSchema(List<String> types, Map<String, StructureOfType> typesByName) {
+        String key = FormSchemaCache.key(types);
+        FormSchema formSchema = formSchemaCache.get(key);
+        if (formSchema == null) {
+            Set<String> unresolvedTypes = new HashSet<>();
+            formSchema = buildFormSchema(types, typesByName, unresolvedTypes);
+            if (unresolvedTypes.isEmpty()) {
+                // We only keep complete schemas - if a type (of the instance, a nested or a target type) couldn't be resolved, we try again with the next request
+                formSchemaCache.put(key, formSchema);
+            }
+        }
+        return formSchema;
+    }
+
+    /**
+     * The types are combined in the order of the instance: the first type defining a label field provides it.
+     *
+     * @param unresolvedTypes collects the names of the types which couldn't be resolved while building the schema
+     */
+    private FormSchema buildFormSchema(List<String> types, Map<String, StructureOfType> typesByName, Set<String> unresolvedTypes) {
+        List<String> distinctTypes = types.stream().filter(Objects::nonNull).distinct().toList();
+        List<StructureOfType> structures = distinctTypes.stream().map(typesByName::get).filter(Objects::nonNull).toList();
+        Map<String, StructureOfField> fields = enrichNestedTypesToInstanceRecursively(getFieldsFromTypes(distinctTypes, typesByName, unresolvedTypes), typesByName, unresolvedTypes);
+        Map<String, StructureOfType> targetTypes = getTargetTypes(fields, typesByName);
+        getTargetTypesNames(fields).stream().filter(t -> !targetTypes.containsKey(t)).forEach(unresolvedTypes::add);
+        fields = Helpers.enrichFieldsTargetTypes(targetTypes, fields);
+        List<String> promotedFields = structures.stream()
+                .map(StructureOfType::getPromotedFields)
+                .filter(Objects::nonNull)
+                .flatMap(Collection::stream)
+                .distinct()
+                .toList();
+        String labelField = structures.stream()
+                .map(StructureOfType::getLabelField)
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+        Set<String> involvedTypes = new HashSet<>(distinctTypes);
+        collectTargetTypesNamesRecursively(fields, involvedTypes);
+        return new FormSchema(Collections.unmodifiableMap(fields), promotedFields, labelField, Collections.unmodifiableSet(involvedTypes));
+    }
+
+    private void collectTargetTypesNamesRecursively(Map<String, StructureOfField> fields, Set<String> result) {
+        result.addAll(getTargetTypesNames(fields));
+        fields.values().stream().map(StructureOfField::getFields).filter(Objects::nonNull).forEach(nestedFields -> collectTargetTypesNamesRecursively(nestedFields, result));
+    }
+
+    /**
+     * The structures of the fields are shared -> there is no need to copy them since they are never changed.
+     */
+    private Map<String, StructureOfField> getFieldsFromTypes(List<String> types, Map<String, StructureOfType> typesByName, Set<String> unresolvedTypes) {
         Map<String, StructureOfField> result = new HashMap<>();
         types.forEach(t -> {
             if (t != null) {
                 StructureOfType structureOfType = typesByName.get(t);
                 if (structureOfType != null) {
-                    structureOfType.getFields().values().forEach(f -> {
-                        if (!result.containsKey(f.getFullyQualifiedName())) {
-                            result.put(f.getFullyQualifiedName(), SerializationUtils.clone(f));
-                        }
-                    });
+                    structureOfType.getFields().values().forEach(f -> result.putIfAbsent(f.getFullyQualifiedName(), f));
+                } else {
+                    unresolvedTypes.add(t);
                 }
             }
         });
         return result;
     }
 
-    private void enrichNestedTypesToInstanceRecursively(Map<String, StructureOfField> fields, Map<String, StructureOfType> typesByName) {
-        fields.values().forEach(f -> {
-            if (f.getWidget() != null && (f.getWidget().equals("Nested") || f.getWidget().equals("SingleNested"))) {
-                Map<String, StructureOfField> nestedFields = getFieldsFromTypes(f.getTargetTypesNames(), typesByName);
-                f.setFields(nestedFields);
-                enrichNestedTypesToInstanceRecursively(nestedFields, typesByName);
+    private Map<String, StructureOfField> enrichNestedTypesToInstanceRecursively(Map<String, StructureOfField> fields, Map<String, StructureOfType> typesByName, Set<String> unresolvedTypes) {
+        Map<String, StructureOfField> result = new HashMap<>();
+        fields.forEach((name, f) -> {
+            if (Helpers.isNestedField(f)) {
+                Map<String, StructureOfField> nestedFields = getFieldsFromTypes(f.getTargetTypesNames(), typesByName, unresolvedTypes);
+                result.put(name, f.withFields(enrichNestedTypesToInstanceRecursively(nestedFields, typesByName, unresolvedTypes)));
+            } else {
+                result.put(name, f);
             }
         });
+        return result;
     }
 
-    private void enrichTypesAndSearchableFields(InstanceSummary instance, Map<?, ?> originalMap, Map<String, StructureOfType> typesByName) {
+    private void enrichTypesAndSearchableFields(InstanceSummary instance, InstanceView<InstanceSummary> instanceView, Map<String, StructureOfType> typesByName) {
         if (typesByName != null) {
             // Fill the type information
             if(instance.getTypes() != null) {
-                instance.getTypes().forEach(t -> enrichSimpleType(t, typesByName));
+                typeController.enrichSimpleTypes(instance.getTypes());
             }
 
             // Define the fields with the structure of the type and the values of the instance
-            List<String> types = getTypesNamesFromInstance(instance);
-            Map<String, StructureOfField> fields = getFieldsFromTypes(types, typesByName);
-
-
-            String labelField = typesByName.values().stream()
-                    .filter(Objects::nonNull)
-                    .map(StructureOfType::getLabelField)
-                    .filter(Objects::nonNull)
-                    .findFirst()
-                    .orElse(null);
-
-            List<String> promotedFields = typesByName.values().stream()
-                    .filter(Objects::nonNull)
-                    .map(StructureOfType::getPromotedFields)
-                    .flatMap(Collection::stream)
-                    .distinct()
-                    .toList();
+            FormSchema formSchema = getFormSchema(getTypesNamesFromInstance(instance), typesByName);
+            String labelField = formSchema.getLabelField();
+            List<String> promotedFields = formSchema.getPromotedFields();
 
-            Map<String, StructureOfField> filteredFields = fields.entrySet().stream()
+            Map<String, StructureOfField> filteredFields = formSchema.getFields().entrySet().stream()
                     .filter(f -> promotedFields.contains(f.getValue().getFullyQualifiedName()) && !f.getValue().getFullyQualifiedName().equals(labelField))
                     .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
 
-            filteredFields.values().forEach(f -> simplifyIdsOfLinks(f, originalMap));
-            instance.setFields(filteredFields);
+            instance.setFields(simplifyIdsOfLinks(filteredFields, instanceView));
 
-            if (labelField != null && originalMap != null) {
-                String name = (String) originalMap.get(labelField);
+            if (labelField != null) {
+                String name = (String) instanceView.getValue(labelField);
                 instance.setName(name);
             }
         }
     }
 
-    private void enrichName(InstanceLabel instance, Map<?, ?> originalMap, Map<String, StructureOfType> typesByName) {
-        if (typesByName != null && instance != null && instance.getTypes() != null) {
-            // Fill the type information
-            instance.getTypes().stream().filter(Objects::nonNull).forEach(t -> enrichSimpleType(t, typesByName));
-            if (originalMap != null) {
-                String label = instance.getTypes().stream().map(SimpleType::getLabelField).filter(Objects::nonNull).map(originalMap::get).filter(Objects::nonNull).map(Object::toString).findFirst().orElse(null);
-                instance.setName(label);
-            }
+    private void enrichName(InstanceLabel instance, InstanceView<InstanceLabel> instanceView) {
+        if (instance != null && instance.getTypes() != null) {
+            String label = instance.getTypes().stream().map(SimpleType::getLabelField).filter(Objects::nonNull).map(instanceView::getValue).filter(Objects::nonNull).map(Object::toString).findFirst().orElse(null);
+            instance.setName(label);
         }
     }
 
-    private <T extends InstanceLabel> Map<String, StructureOfType> getTypesByName(Collection<ResultWithOriginalMap<T>> instancesWithResult, boolean withProperties) {
-        List<T> instanceLabelList = instancesWithResult.stream().map(ResultWithOriginalMap::getResult).filter(Objects::nonNull).toList();
+    private <T extends InstanceLabel> Map<String, StructureOfType> getTypesByName(Collection<InstanceView<T>> instancesWithResult, boolean withProperties) {
+        List<T> instanceLabelList = instancesWithResult.stream().map(InstanceView::getResult).filter(Objects::nonNull).toList();
         return getTypesByName(instanceLabelList, withProperties);
     }
 
-    private Map<String, StructureOfType> getTypesByName(InstanceLabel instance) {
-        List<String> involvedTypes = instance.getTypes().stream().map(SimpleType::getName).collect(Collectors.toList());
-        Map<String, StructureOfType> typesByName = getTypesByNameResult(involvedTypes, true);
-        retrieveTargetTypesFromNestedTypes(typesByName, typesByName);
-        return typesByName;
+    /**
+     * @param withIncomingLinkSourceTypes if true, the source types of the incoming links are requested too (as far as
+     *                                    they are known in advance - see {@link #enrichTypesByNameWithIncomingLinksTypes(InstanceFull, Map)})
+     */
+    private Map<String, StructureOfType> getTypesByName(InstanceLabel instance, boolean withIncomingLinkSourceTypes) {
+        return getTypesByName(Collections.singletonList(instance), true, withIncomingLinkSourceTypes);
     }
 
     private Map<String, StructureOfType> getTypesByName(List<? extends InstanceLabel> instances, boolean withProperties) {
+        return getTypesByName(instances, withProperties, false);
+    }
+
+    private Map<String, StructureOfType> getTypesByName(List<? extends InstanceLabel> instances, boolean withProperties, boolean withIncomingLinkSourceTypes) {
         Stream<SimpleType> simpleTypeStream = instances.stream()
                 .map(InstanceLabel::getTypes)
                 .filter(Objects::nonNull)
@@ -492,9 +649,11 @@ public class InstanceController {
                 .stream()
                 .distinct()
                 .toList();
-        Map<String, StructureOfType> typesByName = getTypesByNameResult(involvedTypes, withProperties);
-        retrieveTargetTypesFromNestedTypes(typesByName, typesByName);
-        return typesByName;
+        if (withProperties) {
+            return withIncomingLinkSourceTypes ? typeController.getTypesWithNestedAndIncomingLinkSourceTypes(involvedTypes) : typeController.getTypesWithNestedTypes(involvedTypes);
+        }
+        // Without properties, there are no nested types to be resolved
+        return getTypesByNameResult(involvedTypes, false);
     }
 
     private Map<String, StructureOfType> getTypesByNameResult(List<String> involvedTypes, boolean withProperties) {
@@ -502,33 +661,12 @@ public class InstanceController {
         return Helpers.getTypesByName(typesResultByName);
     }
 
-    private void retrieveTargetTypesFromNestedTypes(Map<String, StructureOfType> fullTypesByName, Map<String, StructureOfType> typesByName) {
-        List<String> targetTypes = new ArrayList<>();
-        typesByName.values()
-                .forEach(v -> {
-                    if (v.getFields() != null) {
-                        v.getFields().values().stream()
-                                .filter(f -> f != null && f.getTargetTypes() != null && f.getWidget() != null && (f.getWidget().equals("Nested") || f.getWidget().equals("SingleNested")))
-                                .forEach(t -> t.getTargetTypesNames().forEach(tg -> {
-                                    if (!targetTypes.contains(tg) && !fullTypesByName.containsKey(tg)) {
-                                        targetTypes.add(tg);
-                                    }
-                                }));
-                    }
-                });
-        if (!CollectionUtils.isEmpty(targetTypes)) {
-            Map<String, StructureOfType> targetTypesByName = getTypesByNameResult(targetTypes, true);
-            fullTypesByName.putAll(targetTypesByName);
-            retrieveTargetTypesFromNestedTypes(fullTypesByName, targetTypesByName);
-        }
-    }
-
     private boolean containsInferenceUser(List<UserSummary> users) {
         List<UserSummary> list = users.stream().filter(u -> u.getUsername().equals(kgInferenceUser)).collect(Collectors.toList());
         return !CollectionUtils.isEmpty(list);
     }
 
-    private void enrichInference(StructureOfField field, Alternative alternative) {
+    private void enrichInference(FieldValue field, Alternative alternative) {
         if (field != null && alternative.getSelected() && containsInferenceUser(alternative.getUsers())) {
             field.setInferred(true);
         }
@@ -541,7 +679,7 @@ public class InstanceController {
         if (instance.getAlternatives() != null) {
             instance.getAlternatives().entrySet().forEach(e -> {
                 String fieldName = e.getKey();
-                StructureOfField field = instance.getFields().get(fieldName);
+                FieldValue field = instance.getFields().get(fieldName);
                 e.getValue().forEach(alternative -> {
                     alternative.getUsers().forEach(u -> {
                         u.setId(idController.simplifyFullyQualifiedId(u.getId()).toString());
@@ -554,26 +692,14 @@ public class InstanceController {
     }
 
     public void enrichNeighborRecursivelyWithTypeInformation(Neighbor neighbor) {
-        Set<String> typesInNeighbor = findTypesInNeighbor(neighbor, new HashSet<>());
-        Map<String, StructureOfType> typesByName = getTypesByNameResult(new ArrayList<>(typesInNeighbor), false);
-        enrichTypesInNeighbor(neighbor, typesByName);
+        List<SimpleType> typesInNeighbor = new ArrayList<>();
+        findTypesInNeighbor(neighbor, typesInNeighbor);
+        typeController.enrichSimpleTypes(typesInNeighbor);
     }
 
-    private void enrichTypesInNeighbor(Neighbor neighbor, Map<String, StructureOfType> types) {
+    private static void findTypesInNeighbor(Neighbor neighbor, List<SimpleType> acc) {
         if (neighbor.getTypes() != null) {
-            neighbor.getTypes().forEach(t -> enrichSimpleType(t, types));
-        }
-        if (neighbor.getInbound() != null) {
-            neighbor.getInbound().forEach(i -> enrichTypesInNeighbor(i, types));
-        }
-        if (neighbor.getOutbound() != null) {
-            neighbor.getOutbound().forEach(o -> enrichTypesInNeighbor(o, types));
-        }
-    }
-
-    private static Set<String> findTypesInNeighbor(Neighbor neighbor, Set<String> acc) {
-        if (neighbor.getTypes() != null) {
-            acc.addAll(neighbor.getTypes().stream().map(SimpleType::getName).collect(Collectors.toSet()));
+            acc.addAll(neighbor.getTypes());
         }
         if (neighbor.getInbound() != null) {
             neighbor.getInbound().forEach(inboundNeighbor -> findTypesInNeighbor(inboundNeighbor, acc));
@@ -581,24 +707,28 @@ public class InstanceController {
         if (neighbor.getOutbound() != null) {
             neighbor.getOutbound().forEach(outboundNeighbor -> findTypesInNeighbor(outboundNeighbor, acc));
         }
-        return acc;
     }
 
 
     public void enrichScopeRecursivelyWithTypeAndReleaseStatusInformation(Scope scope) {
-        Set<String> types = new HashSet<>();
+        List<SimpleType> types = new ArrayList<>();
         Set<String> ids = new HashSet<>();
         findTypesAndIdsInScope(scope, types, ids);
 
-        Map<String, StructureOfType> typesByName = getTypesByNameResult(new ArrayList<>(types), false);
-        enrichTypesInScope(scope, typesByName);
-        Map<String, KGCoreResult<String>> releaseStatus = releaseClient.getReleaseStatus(new ArrayList<>(ids), "TOP_INSTANCE_ONLY");
-        enrichReleaseStatusInScope(scope, releaseStatus);
+        try (ConcurrentCalls.Scope calls = concurrentCalls.open()) {
+            calls.fork(() -> {
+                typeController.enrichSimpleTypes(types);
+                return null;
+            });
+            Supplier<Map<String, KGCoreResult<String>>> releaseStatus = calls.fork(() -> releaseClient.getReleaseStatus(new ArrayList<>(ids), "TOP_INSTANCE_ONLY"));
+            calls.join();
+            enrichReleaseStatusInScope(scope, releaseStatus.get());
+        }
     }
 
 
-    private static void findTypesAndIdsInScope(Scope scope, Set<String> types, Set<String> ids) {
-        types.addAll(scope.getTypes().stream().map(SimpleType::getName).collect(Collectors.toSet()));
+    private static void findTypesAndIdsInScope(Scope scope, List<SimpleType> types, Set<String> ids) {
+        types.addAll(scope.getTypes());
         ids.add(scope.getId());
         if (scope.getChildren() != null) {
             scope.getChildren().forEach(s -> findTypesAndIdsInScope(s, types, ids));
@@ -613,11 +743,4 @@ public class InstanceController {
         }
     }
 
-    private void enrichTypesInScope(Scope scope, Map<String, StructureOfType> types) {
-        scope.getTypes().forEach(t -> enrichSimpleType(t, types));
-        if (scope.getChildren() != null) {
-            scope.getChildren().forEach(i -> enrichTypesInScope(i, types));
-        }
-    }
-
 }
@@ -23,19 +23,27 @@
 
 package eu.ebrains.kg.service.controllers;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import eu.ebrains.kg.service.helpers.Helpers;
+import eu.ebrains.kg.service.models.ETaggedBody;
 import eu.ebrains.kg.service.models.KGCoreResult;
 import eu.ebrains.kg.service.models.type.StructureOfField;
 import eu.ebrains.kg.service.models.type.StructureOfType;
 import eu.ebrains.kg.service.models.user.Space;
 import eu.ebrains.kg.service.services.SpaceClient;
-import org.apache.commons.lang3.SerializationUtils;
+import eu.ebrains.kg.service.services.TypeCatalog;
+import eu.ebrains.kg.service.services.TypeStructureCache;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import java.io.Serializable;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -44,11 +52,23 @@ import java.util.stream.Stream;
 public class SpaceController {
 
     private final SpaceClient spaceClient;
+    private final TypeController typeController;
+    private final TypeCatalog typeCatalog;
+    private final TypeStructureCache typeStructureCache;
+    private final ObjectMapper objectMapper;
+    private final Cache serializedTypes;
 
-    public SpaceController(SpaceClient spaceClient) {
+    public SpaceController(SpaceClient spaceClient, TypeController typeController, TypeCatalog typeCatalog, TypeStructureCache typeStructureCache, ObjectMapper jacksonObjectMapper, CacheManager cacheManager) {
         this.spaceClient = spaceClient;
+        this.typeController = typeController;
+        this.typeCatalog = typeCatalog;
+        this.typeStructureCache = typeStructureCache;
+        this.objectMapper = jacksonObjectMapper;
+        this.serializedTypes = cacheManager.getCache("serializedSpaceTypes");
     }
 
+    public record VersionedBody(String version, ETaggedBody body) implements Serializable {}
+
     private boolean hasSpace(String name) {
         try{
             Space space = spaceClient.getSpace(name);
@@ -87,6 +107,34 @@ public class SpaceController {
         return getTypesWithNestedTypes(types);
     }
 
+    /**
+     * The serialized types of the space are kept per user (the types of a space are only visible to users with access
+     * to it) as long as neither the type catalog nor the cached type structures have changed. This way, the fingerprint
+     * doesn't need to be recalculated for every request. Requests without authorization are never served from the cache.
+     */
+    public ETaggedBody getSerializedTypes(String space) {
+        String version = String.format("%s|%d", typeCatalog.getVersion(), typeStructureCache.getGeneration());
+        String authorization = Helpers.getAuthorization();
+        String key = authorization != null ? String.format("%s|%s", Helpers.fingerprint(authorization.getBytes(StandardCharsets.UTF_8)), space) : null;
+        VersionedBody cached = key != null ? serializedTypes.get(key, VersionedBody.class) : null;
+        if (cached != null && cached.version().equals(version)) {
+            return cached.body();
+        }
+        try {
+            ETaggedBody body = ETaggedBody.of(objectMapper.writeValueAsBytes(new KGCoreResult<List<StructureOfType>>().setData(getTypes(space))));
+            if (key != null) {
+                serializedTypes.put(key, new VersionedBody(version, body));
+            }
+            return body;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String getTypesVersion() {
+        return typeCatalog.getVersion();
+    }
+
     public List<StructureOfType> getTypesByName(List<String> typeNames, String space) {
         if (CollectionUtils.isEmpty(typeNames)) {
             return Collections.emptyList();
@@ -125,7 +173,7 @@ public class SpaceController {
     }
 
     private void enrichSpaceTypes(List<StructureOfType> spaceTypes, Map<String, StructureOfType> typesMap) {
-        spaceTypes.forEach(st -> Helpers.enrichFieldsTargetTypes(typesMap, st.getFields()));
+        spaceTypes.forEach(st -> st.getFields().replaceAll((name, f) -> Helpers.enrichTargetTypes(typesMap, f)));
     }
 
     private void getIncomingLinksTypes(List<StructureOfType> spaceTypes, Map<String, StructureOfType> typesMap) {
@@ -213,38 +261,33 @@ public class SpaceController {
     }
 
     private void getNestedTypes(Map<String, StructureOfType> typesMap, List<StructureOfType> types) {
-        List<String> typesToRetrieve = new ArrayList<>();
-        types.forEach(type -> type.getFields().values().forEach(f -> {
-            if (Helpers.isNestedField(f) && !CollectionUtils.isEmpty(f.getTargetTypesNames())) {
-                f.getTargetTypesNames().forEach(targetType -> {
-                    if (!typesMap.containsKey(targetType)) {
-                        typesToRetrieve.add(targetType);
-                    }
-                });
-            }
-        }));
-        List<String> uniqueTypes = typesToRetrieve.stream().distinct().toList();
-        if (!CollectionUtils.isEmpty(uniqueTypes)) {
-            Map<String, KGCoreResult<StructureOfType>> nestedTypesByNameResult = spaceClient.getTypesByName(uniqueTypes, true);
-            Map<String, StructureOfType> nestedTypesByName = Helpers.getTypesByName(nestedTypesByNameResult);
-            typesMap.putAll(nestedTypesByName);
-            List<StructureOfType> nestedTypes = new ArrayList<>(nestedTypesByName.values());
-            getNestedTypes(typesMap, nestedTypes);
+        typesMap.putAll(typeController.getNestedTypes(types, typesMap.keySet()));
+        Set<String> typesWithNestedFields = new HashSet<>();
+        types.forEach(t -> setNestedFields(t, typesMap, typesWithNestedFields));
+        typesMap.values().forEach(t -> setNestedFields(t, typesMap, typesWithNestedFields));
+    }
+
+    /**
+     * The nested types are handled first since the fields we're referring to in the nested field need to contain their own nested fields already.
+     */
+    private void setNestedFields(StructureOfType type, Map<String, StructureOfType> typesMap, Set<String> typesWithNestedFields) {
+        if (!typesWithNestedFields.add(type.getName())) {
+            return;
         }
-        types.forEach(t -> t.getFields().values().forEach(f -> {
+        type.getFields().replaceAll((name, f) -> {
             if (Helpers.isNestedField(f) && !CollectionUtils.isEmpty(f.getTargetTypesNames())) {
                 Map<String, StructureOfField> fields = new HashMap<>();
                 f.getTargetTypesNames().forEach(targetType -> {
                     StructureOfType structureOfType = typesMap.get(targetType);
                     if(structureOfType != null) {
-                        Map<String, StructureOfField> nestedFields = structureOfType.getFields().entrySet().stream()
-                                .collect(Collectors.toMap(Map.Entry::getKey, v -> SerializationUtils.clone(v.getValue())));
-                        fields.putAll(nestedFields);
+                        setNestedFields(structureOfType, typesMap, typesWithNestedFields);
+                        fields.putAll(structureOfType.getFields());
                     }
                 });
-                f.setFields(fields);
+                return f.withFields(fields);
             }
-        }));
+            return f;
+        });
     }
 
 }
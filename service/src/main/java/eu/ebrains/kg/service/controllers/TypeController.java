@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.controllers;
+
+import eu.ebrains.kg.service.helpers.Helpers;
+import eu.ebrains.kg.service.models.type.SimpleType;
+import eu.ebrains.kg.service.models.type.StructureOfType;
+import eu.ebrains.kg.service.services.SpaceClient;
+import eu.ebrains.kg.service.services.TypeDependencyGraph;
+import eu.ebrains.kg.service.services.TypeMetadataIndex;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Component
+public class TypeController {
+
+    private final SpaceClient spaceClient;
+    private final TypeDependencyGraph typeDependencyGraph;
+    private final TypeMetadataIndex typeMetadataIndex;
+
+    public TypeController(SpaceClient spaceClient, TypeDependencyGraph typeDependencyGraph, TypeMetadataIndex typeMetadataIndex) {
+        this.spaceClient = spaceClient;
+        this.typeDependencyGraph = typeDependencyGraph;
+        this.typeMetadataIndex = typeMetadataIndex;
+    }
+
+    /**
+     * Fills the label, color, description and label field of the given types. They are served by the
+     * {@link TypeMetadataIndex} - only the types it doesn't know yet are looked up (without properties).
+     */
+    public void enrichSimpleTypes(Collection<SimpleType> types) {
+        List<String> unknownTypes = types.stream()
+                .filter(Objects::nonNull)
+                .map(SimpleType::getName)
+                .filter(t -> t != null && !typeMetadataIndex.contains(t))
+                .distinct()
+                .toList();
+        if (!unknownTypes.isEmpty()) {
+            Helpers.getTypesByName(spaceClient.getTypesByName(unknownTypes, false)).values().forEach(typeMetadataIndex::put);
+        }
+        types.stream().filter(Objects::nonNull).forEach(typeMetadataIndex::enrich);
+    }
+
+    /**
+     * @return the structures (with properties) of the given types and of all types which are reachable through their nested fields.
+     */
+    public Map<String, StructureOfType> getTypesWithNestedTypes(Collection<String> types) {
+        return retrieveWithNestedTypes(typeDependencyGraph.getClosure(types, TypeDependencyGraph.Edge.NESTED), Collections.emptySet(), Collections.emptySet());
+    }
+
+    /**
+     * The same as {@link #getTypesWithNestedTypes(Collection)} but the structures of the source types of the incoming
+     * links of the given types (without their nested types) are requested within the same call - as far as the
+     * dependency graph knows about them.
+     */
+    public Map<String, StructureOfType> getTypesWithNestedAndIncomingLinkSourceTypes(Collection<String> types) {
+        Set<String> sourceTypes = new LinkedHashSet<>();
+        types.forEach(t -> sourceTypes.addAll(typeDependencyGraph.getRelatedTypes(t, TypeDependencyGraph.Edge.INCOMING_LINK_SOURCE)));
+        return retrieveWithNestedTypes(typeDependencyGraph.getClosure(types, TypeDependencyGraph.Edge.NESTED), sourceTypes, Collections.emptySet());
+    }
+
+    /**
+     * @return the structures (with properties) of all types reachable through the nested fields of the given types
+     * which are not part of the already known types.
+     */
+    public Map<String, StructureOfType> getNestedTypes(Collection<StructureOfType> types, Set<String> knownTypes) {
+        return retrieveWithNestedTypes(typeDependencyGraph.getClosure(getNestedTypeNames(types), TypeDependencyGraph.Edge.NESTED), Collections.emptySet(), knownTypes);
+    }
+
+    /**
+     * The closure is resolved by the dependency graph, so we usually end up with a single call. Only if the graph doesn't
+     * know about some of the types (yet), we need to have a look at the nested types of what we've received.
+     *
+     * @param additionalTypes types to request within the first call whose nested types are not resolved
+     */
+    private Map<String, StructureOfType> retrieveWithNestedTypes(Set<String> types, Set<String> additionalTypes, Set<String> knownTypes) {
+        Map<String, StructureOfType> result = new HashMap<>();
+        Set<String> requested = new HashSet<>(knownTypes);
+        Set<String> toRetrieve = new LinkedHashSet<>(types);
+        toRetrieve.addAll(additionalTypes);
+        toRetrieve.removeAll(requested);
+        while (!toRetrieve.isEmpty()) {
+            requested.addAll(toRetrieve);
+            Map<String, StructureOfType> retrieved = Helpers.getTypesByName(spaceClient.getTypesByName(new ArrayList<>(toRetrieve), true));
+            result.putAll(retrieved);
+            List<StructureOfType> withNestedTypes = retrieved.values().stream().filter(t -> types.contains(t.getName()) || !additionalTypes.contains(t.getName())).toList();
+            toRetrieve = typeDependencyGraph.getClosure(getNestedTypeNames(withNestedTypes), TypeDependencyGraph.Edge.NESTED);
+            toRetrieve.removeAll(requested);
+        }
+        return result;
+    }
+
+    private static Set<String> getNestedTypeNames(Collection<StructureOfType> types) {
+        return types.stream()
+                .filter(Objects::nonNull)
+                .flatMap(t -> t.getFields().values().stream())
+                .filter(Helpers::isNestedField)
+                .flatMap(f -> f.getTargetTypesNames().stream())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.helpers;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of concurrent calls and adapts the limit with AIMD (additive increase, multiplicative decrease):
+ * every call which completes within the latency threshold while the limit is in use raises the limit by 1/limit (so
+ * roughly by one per "round" of calls), every call which is slower or fails with an overload of the called service
+ * lowers it by the backoff ratio. Calls exceeding the limit wait in a short queue and are rejected with a
+ * {@link LimitExceededException} if the queue is full or they have waited for too long.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final double minLimit;
+    private final double maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdInNanos;
+    private final int maxQueueSize;
+    private final Duration maxWait;
+    private final Counter rejections;
+
+    private final Deque<MonoSink<Boolean>> queue = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+
+    public AdaptiveConcurrencyLimiter(String kind, int initialLimit, int minLimit, int maxLimit, double backoffRatio, Duration latencyThreshold, int maxQueueSize, Duration maxWait, MeterRegistry meterRegistry) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdInNanos = latencyThreshold.toNanos();
+        this.maxQueueSize = maxQueueSize;
+        this.maxWait = maxWait;
+        Gauge.builder("kg.editor.kgcore.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current limit of concurrent calls to kg-core")
+                .tag("kind", kind)
+                .register(meterRegistry);
+        Gauge.builder("kg.editor.kgcore.concurrency.inFlight", this, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Number of calls to kg-core which are currently in flight")
+                .tag("kind", kind)
+                .register(meterRegistry);
+        Gauge.builder("kg.editor.kgcore.concurrency.queue", this, AdaptiveConcurrencyLimiter::getQueueSize)
+                .description("Number of calls to kg-core waiting for the concurrency limit")
+                .tag("kind", kind)
+                .register(meterRegistry);
+        this.rejections = Counter.builder("kg.editor.kgcore.concurrency.rejected")
+                .description("Number of calls to kg-core which have been rejected because of the concurrency limit")
+                .tag("kind", kind)
+                .register(meterRegistry);
+    }
+
+    public synchronized double getLimit() {
+        return limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * @param call               the call to limit - it is only subscribed to once a permit has been acquired
+     * @param isOverloadResponse tells if a result of the call reports an overload of the called service (and
+     *                           therefore has to lower the limit)
+     * @param isOverloadError    tells if an error of the call is caused by an overload of the called service
+     */
+    public <T> Mono<T> limit(Supplier<Mono<T>> call, Predicate<T> isOverloadResponse, Predicate<Throwable> isOverloadError) {
+        return limit(call, isOverloadResponse, isOverloadError, (result, release) -> {
+            release.accept(null);
+            return result;
+        });
+    }
+
+    /**
+     * The same as {@link #limit(Supplier, Predicate, Predicate)} but the permit is held until the result has been
+     * processed (e.g. until the body of a response has been read): {@code holdUntilDone} receives the result and the
+     * action releasing the permit and returns a result which runs this action (with the error which ended the
+     * processing, if any) once it is done. A result which is never processed keeps its permit - the caller has to make
+     * sure it is always consumed or released.
+     */
+    public <T> Mono<T> limit(Supplier<Mono<T>> call, Predicate<T> isOverloadResponse, Predicate<Throwable> isOverloadError, BiFunction<T, Consumer<Throwable>, T> holdUntilDone) {
+        return acquire().flatMap(ignored -> {
+            long start = System.nanoTime();
+            // The permit must be released only once - no matter if the call succeeds, fails or is cancelled
+            AtomicBoolean released = new AtomicBoolean();
+            // Once the result has been handed over, its processing is in charge of releasing the permit
+            AtomicBoolean handedOver = new AtomicBoolean();
+            Consumer<Boolean> release = overload -> {
+                if (released.compareAndSet(false, true)) {
+                    complete(overload || System.nanoTime() - start > latencyThresholdInNanos);
+                }
+            };
+            return call.get()
+                    .map(r -> {
+                        boolean overloadResponse = isOverloadResponse.test(r);
+                        handedOver.set(true);
+                        return holdUntilDone.apply(r, e -> release.accept(overloadResponse || (e != null && isOverloadError.test(e))));
+                    })
+                    .doOnSuccess(r -> {
+                        if (r == null) {
+                            release.accept(false);
+                        }
+                    })
+                    .doOnError(e -> {
+                        if (!handedOver.get()) {
+                            release.accept(isOverloadError.test(e));
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (!handedOver.get() && released.compareAndSet(false, true)) {
+                            releasePermit();
+                        }
+                    });
+        });
+    }
+
+    private Mono<Boolean> acquire() {
+        return Mono.<Boolean>create(sink -> {
+            boolean acquired = false;
+            boolean rejected = false;
+            synchronized (this) {
+                // The limit, the queue and the permits are checked and changed atomically - otherwise a permit could be
+                // released between the check and the enqueuing and be handed over to nobody
+                if (inFlight < (int) limit) {
+                    inFlight++;
+                    acquired = true;
+                } else if (queue.size() >= maxQueueSize) {
+                    rejected = true;
+                } else {
+                    queue.addLast(sink);
+                }
+            }
+            if (acquired) {
+                sink.success(true);
+                return;
+            }
+            if (rejected) {
+                rejections.increment();
+                sink.error(new LimitExceededException());
+                return;
+            }
+            sink.onCancel(() -> {
+                boolean handedOver;
+                synchronized (this) {
+                    handedOver = !queue.remove(sink);
+                }
+                if (handedOver) {
+                    // The permit has been handed over to this call just before it gave up waiting
+                    releasePermit();
+                }
+            });
+        }).timeout(maxWait, Mono.defer(() -> {
+            rejections.increment();
+            return Mono.error(new LimitExceededException());
+        }));
+    }
+
+    private void complete(boolean dropped) {
+        synchronized (this) {
+            if (dropped) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (inFlight * 2 >= limit) {
+                // Only raise the limit if it is actually in use
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+        releasePermit();
+    }
+
+    private void releasePermit() {
+        MonoSink<Boolean> next;
+        synchronized (this) {
+            inFlight--;
+            if (inFlight >= (int) limit || queue.isEmpty()) {
+                return;
+            }
+            // The permit is handed over to the next waiting call
+            next = queue.pollFirst();
+            inFlight++;
+        }
+        next.success(true);
+    }
+
+    public static class LimitExceededException extends RuntimeException {
+        public LimitExceededException() {
+            super("Too many concurrent calls to kg-core");
+        }
+    }
+}
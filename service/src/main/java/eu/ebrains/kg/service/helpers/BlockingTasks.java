@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+package eu.ebrains.kg.service.helpers;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs the blocking stages of a reactive endpoint - mainly the enrichment with type information, which relies on the
+ * per-user caches and may still have to wait for kg-core on a cache miss - off the servlet thread. The stages are bound
+ * to the request which has created them (for the token of the user and the keys of the per-user caches), so they have
+ * to be created in the request thread. They run on the given executor (e.g. virtual threads) or - without one - on the
+ * bounded elastic scheduler of reactor.
+ */
+public class BlockingTasks {
+
+    private final Scheduler scheduler;
+
+    /**
+     * @param executor the executor running the tasks - null for the bounded elastic scheduler
+     */
+    public BlockingTasks(Executor executor) {
+        this.scheduler = executor != null ? Schedulers.fromExecutor(executor) : Schedulers.boundedElastic();
+    }
+
+    /**
+     * @return the result of the given task - empty if it returns null
+     */
+    public <T> Mono<T> supply(Supplier<T> task) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return Mono.fromSupplier(() -> inRequestContext(attributes, task)).subscribeOn(scheduler);
+    }
+
+    public Mono<Void> run(Runnable task) {
+        return supply(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return the given task as a stage to be composed with the result of a previous one (e.g. in a flatMap)
+     */
+    public <V, T> Function<V, Mono<T>> apply(Function<V, T> task) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return value -> Mono.fromSupplier(() -> inRequestContext(attributes, () -> task.apply(value))).subscribeOn(scheduler);
+    }
+
+    private static <T> T inRequestContext(RequestAttributes attributes, Supplier<T> task) {
+        if (attributes == null || RequestContextHolder.getRequestAttributes() != null) {
+            return task.get();
+        }
+        RequestContextHolder.setRequestAttributes(attributes);
+        try {
+            return task.get();
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+}
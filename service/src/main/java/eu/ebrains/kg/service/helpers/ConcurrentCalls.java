@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.helpers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Runs independent blocking calls of a user request concurrently. The calls are forked in a {@link Scope} which is
+ * joined before any of the results are read and which doesn't let any of its calls outlive it - the same shape as
+ * the structured concurrency of newer JDKs. Without an executor (the default), the calls are run one after the other
+ * in the calling thread as before.
+ */
+public class ConcurrentCalls {
+
+    private final Executor executor;
+
+    /**
+     * @param executor the executor running the forked calls - null to run them in the calling thread
+     */
+    public ConcurrentCalls(Executor executor) {
+        this.executor = executor;
+    }
+
+    public Scope open() {
+        return new Scope();
+    }
+
+    public class Scope implements AutoCloseable {
+
+        private final List<FutureTask<?>> tasks = new ArrayList<>();
+        private final BlockingQueue<FutureTask<?>> completed = new LinkedBlockingQueue<>();
+        private int joined;
+
+        /**
+         * @return the result of the call - only available after {@link #join()}
+         */
+        public <T> Supplier<T> fork(Supplier<T> call) {
+            FutureTask<T> task = new FutureTask<>(call::get) {
+                @Override
+                protected void done() {
+                    completed.add(this);
+                }
+            };
+            tasks.add(task);
+            if (executor != null) {
+                // The call is bound to the request of the forking thread to be able to use the token of the user
+                executor.execute(Helpers.withRequestContext(task));
+            } else {
+                task.run();
+            }
+            return () -> {
+                if (!task.isDone()) {
+                    throw new IllegalStateException("The scope has not been joined");
+                }
+                try {
+                    return task.get();
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+        }
+
+        /**
+         * Waits for all forked calls in the order of their completion - as soon as one of them fails, the others are
+         * cancelled and its exception is rethrown.
+         */
+        public void join() {
+            for (; joined < tasks.size(); joined++) {
+                try {
+                    completed.take().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    close();
+                    throw new IllegalStateException(e);
+                } catch (ExecutionException e) {
+                    close();
+                    if (e.getCause() instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                    }
+                    throw new IllegalStateException(e.getCause());
+                } catch (CancellationException e) {
+                    close();
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            tasks.forEach(t -> t.cancel(true));
+        }
+    }
+}
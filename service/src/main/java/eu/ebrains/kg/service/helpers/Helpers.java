@@ -24,10 +24,22 @@
 package eu.ebrains.kg.service.helpers;
 
 import eu.ebrains.kg.service.models.KGCoreResult;
+import eu.ebrains.kg.service.models.type.SimpleType;
 import eu.ebrains.kg.service.models.type.StructureOfField;
 import eu.ebrains.kg.service.models.type.StructureOfType;
+import eu.ebrains.kg.service.configuration.OauthClient;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -49,23 +61,87 @@ public class Helpers {
         return field.getWidget() != null && (field.getWidget().equals("Nested") ||  field.getWidget().equals("SingleNested"));
     }
 
-    public static void enrichFieldsTargetTypes(Map<String, StructureOfType> typesMap, Map<String, StructureOfField> fields) {
-        if (fields != null) {
-            fields.forEach((name, field) -> {
-                if (field.getTargetTypes() != null) {
-                    field.getTargetTypes().forEach(targetType -> {
-                        if (StringUtils.isNotBlank(targetType.getName())) {
-                            StructureOfType t = typesMap.get(targetType.getName());
-                            if (t != null) {
-                                targetType.setLabel(t.getLabel());
-                                targetType.setColor(t.getColor());
-                                targetType.setDescription(t.getDescription());
-                            }
-                        }
-                    });
+    /**
+     * @return the fields with the label, color and description of their target types
+     */
+    public static Map<String, StructureOfField> enrichFieldsTargetTypes(Map<String, StructureOfType> typesMap, Map<String, StructureOfField> fields) {
+        if (fields == null) {
+            return null;
+        }
+        Map<String, StructureOfField> result = new HashMap<>();
+        fields.forEach((name, field) -> result.put(name, enrichTargetTypes(typesMap, field)));
+        return result;
+    }
+
+    public static StructureOfField enrichTargetTypes(Map<String, StructureOfType> typesMap, StructureOfField field) {
+        if (field.getTargetTypes() == null) {
+            return field;
+        }
+        List<SimpleType> targetTypes = field.getTargetTypes().stream().map(targetType -> {
+            if (StringUtils.isNotBlank(targetType.getName())) {
+                StructureOfType t = typesMap.get(targetType.getName());
+                if (t != null) {
+                    SimpleType enrichedTargetType = new SimpleType(targetType.getName());
+                    enrichedTargetType.setLabel(t.getLabel());
+                    enrichedTargetType.setColor(t.getColor());
+                    enrichedTargetType.setDescription(t.getDescription());
+                    enrichedTargetType.setLabelField(targetType.getLabelField());
+                    return enrichedTargetType;
                 }
-            });
+            }
+            return targetType;
+        }).toList();
+        return field.withTargetTypes(targetTypes);
+    }
+
+    /**
+     * @return a hex encoded SHA-256 hash of the given content
+     */
+    public static String fingerprint(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
-}
 
+    /**
+     * @return the authorization header of the user request handled by the current thread or null if there is none
+     */
+    public static String getAuthorization() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            return attributes.getRequest().getHeader(OauthClient.AUTHORIZATION_KEY);
+        }
+        return null;
+    }
+
+    /**
+     * @return the given call carrying the authorization of the user request handled by the current thread in its
+     * context - kg-core requests which are only built while it runs (e.g. in a flatMap) are sent with the token of the user too
+     */
+    public static <T> Mono<T> withUserToken(Mono<T> call) {
+        String authorization = getAuthorization();
+        return authorization != null ? call.contextWrite(Context.of(OauthClient.AUTHORIZATION_KEY, authorization)) : call;
+    }
+
+    /**
+     * @return the given task bound to the request of the current thread - this allows another thread to call kg-core
+     * with the token of the user. The task has to be completed before the request is.
+     */
+    public static Runnable withRequestContext(Runnable task) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return () -> {
+            if (attributes == null || RequestContextHolder.getRequestAttributes() != null) {
+                // Either there is no request to propagate or the task is run by a thread with its own request (e.g. the caller itself)
+                task.run();
+                return;
+            }
+            RequestContextHolder.setRequestAttributes(attributes);
+            try {
+                task.run();
+            } finally {
+                RequestContextHolder.resetRequestAttributes();
+            }
+        };
+    }
+}
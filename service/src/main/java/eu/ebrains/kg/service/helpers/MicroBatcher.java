@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+package eu.ebrains.kg.service.helpers;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Collects the items requested for the same key within a short window and resolves them with a single call: the first
+ * caller opens the batch, waits for the window to pass (or the batch to be full) and then issues the call in its own
+ * thread (and therefore with its own request context) - all other callers joining the batch in the meantime wait for
+ * its result. If no other caller is in progress when the batch is opened, nobody is expected to join it and the first
+ * caller issues its call right away.
+ */
+public class MicroBatcher<K, I, R> {
+
+    private final ConcurrentMap<K, Batch<I, R>> open = new ConcurrentHashMap<>();
+    private final AtomicInteger inProgress = new AtomicInteger();
+    private final long windowInMs;
+    private final int maxSize;
+    private final Counter calls;
+    private final DistributionSummary callersPerBatch;
+
+    public MicroBatcher(String operation, long windowInMs, int maxSize, MeterRegistry meterRegistry) {
+        this.windowInMs = windowInMs;
+        this.maxSize = Math.max(1, maxSize);
+        this.calls = Counter.builder("kg.editor.batch.calls")
+                .description("Number of calls issued to kg-core for a batch")
+                .tag("operation", operation)
+                .register(meterRegistry);
+        this.callersPerBatch = DistributionSummary.builder("kg.editor.batch.callers")
+                .description("Number of callers which have been served by a single batch")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the result of the call which has resolved the given items - this can contain the results of items
+     * requested by other callers of the same batch too.
+     */
+    public R execute(K key, Collection<I> items, Function<List<I>, R> call) {
+        if (windowInMs <= 0 || items.size() >= maxSize) {
+            return issue(new ArrayList<>(items), 1, call);
+        }
+        boolean othersInProgress = inProgress.getAndIncrement() > 0;
+        try {
+            Batch<I, R> created = new Batch<>();
+            created.add(items, maxSize);
+            Batch<I, R> existing = open.putIfAbsent(key, created);
+            if (existing == null) {
+                return lead(key, created, othersInProgress, call);
+            }
+            if (existing.add(items, maxSize)) {
+                return join(existing.result);
+            }
+            // The batch is either full or has just been closed - we don't wait for the next one
+            return issue(new ArrayList<>(items), 1, call);
+        } finally {
+            inProgress.decrementAndGet();
+        }
+    }
+
+    private R lead(K key, Batch<I, R> batch, boolean othersInProgress, Function<List<I>, R> call) {
+        if (othersInProgress) {
+            try {
+                batch.awaitFull(windowInMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        open.remove(key, batch);
+        List<I> items = batch.close();
+        try {
+            R result = issue(items, batch.getCallers(), call);
+            batch.result.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            batch.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private R issue(List<I> items, int callers, Function<List<I>, R> call) {
+        calls.increment();
+        callersPerBatch.record(callers);
+        return call.apply(items);
+    }
+
+    private R join(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private static class Batch<I, R> {
+        private final Set<I> items = new LinkedHashSet<>();
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+        private int callers;
+        private boolean closed;
+        private boolean full;
+
+        private synchronized boolean add(Collection<I> newItems, int maxSize) {
+            if (closed || (callers > 0 && items.size() + newItems.size() > maxSize)) {
+                return false;
+            }
+            items.addAll(newItems);
+            callers++;
+            if (items.size() >= maxSize) {
+                full = true;
+                notifyAll();
+            }
+            return true;
+        }
+
+        /**
+         * Waits until either the batch is full or the window has passed.
+         */
+        private synchronized void awaitFull(long windowInMs) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowInMs);
+            long remaining;
+            while (!full && (remaining = deadline - System.nanoTime()) > 0) {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        }
+
+        private synchronized int getCallers() {
+            return callers;
+        }
+
+        private synchronized List<I> close() {
+            closed = true;
+            return new ArrayList<>(items);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.helpers;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Stale-while-revalidate: the caller keeps serving the stale value while a single refresh per key is run in the
+ * background. Since the refresh runs outside of the user request, it can't rely on the request context - calls on
+ * behalf of the user have to be built before (in the request thread) and only be sent by the refresh.
+ * <p>
+ * Serving a stale value is recorded in the current request only (see {@link #STALE_ATTRIBUTE}) since the lookup can
+ * happen in any thread bound to the request - the Warning header is set once by the request thread before the body is
+ * written (see {@link eu.ebrains.kg.service.api.StaleResponseAdvice}).
+ */
+public class Revalidator<K> {
+
+    public static final String STALE_WARNING = "110 - \"Response is Stale\"";
+    public static final String STALE_ATTRIBUTE = Revalidator.class.getName() + ".stale";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final String operation;
+    private final Executor executor;
+    private final Set<K> inFlight = ConcurrentHashMap.newKeySet();
+    private final Counter servedStale;
+    private final Counter succeeded;
+    private final Counter failed;
+
+    public Revalidator(String operation, Executor executor, MeterRegistry meterRegistry) {
+        this.operation = operation;
+        this.executor = executor;
+        this.servedStale = Counter.builder("kg.editor.stale.served")
+                .description("Number of stale values which have been served while being revalidated")
+                .tag("operation", operation)
+                .register(meterRegistry);
+        this.succeeded = Counter.builder("kg.editor.stale.revalidations")
+                .tag("operation", operation)
+                .tag("outcome", "success")
+                .register(meterRegistry);
+        this.failed = Counter.builder("kg.editor.stale.revalidations")
+                .tag("operation", operation)
+                .tag("outcome", "failure")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Marks the current response as stale and triggers the refresh for the keys which are not already being refreshed.
+     */
+    public void revalidate(Collection<K> staleKeys, Consumer<List<K>> refresh) {
+        if (staleKeys.isEmpty()) {
+            return;
+        }
+        servedStale.increment(staleKeys.size());
+        markRequestAsStale();
+        List<K> owned = staleKeys.stream().distinct().filter(inFlight::add).toList();
+        if (owned.isEmpty()) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    refresh.accept(owned);
+                    succeeded.increment();
+                } catch (RuntimeException e) {
+                    // We keep the stale value - the next lookup will try again
+                    failed.increment();
+                    logger.warn("Was not able to revalidate {} for {}", operation, owned, e);
+                } finally {
+                    owned.forEach(inFlight::remove);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            owned.forEach(inFlight::remove);
+        }
+    }
+
+    /**
+     * The attribute is set on the servlet request itself - the request attributes refuse it as soon as the initial
+     * dispatch of an asynchronously handled request is over.
+     */
+    private static void markRequestAsStale() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            attributes.getRequest().setAttribute(STALE_ATTRIBUTE, Boolean.TRUE);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.helpers;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent lookups of the same keys: the first caller asking for a key issues the call, all others asking
+ * for the same key while the call is in flight wait for its result instead of issuing their own.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter issued;
+    private final Counter coalesced;
+
+    public SingleFlight(String operation, MeterRegistry meterRegistry) {
+        this.issued = Counter.builder("kg.editor.singleflight.issued")
+                .description("Number of calls issued to kg-core")
+                .tag("operation", operation)
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("kg.editor.singleflight.coalesced")
+                .description("Number of lookups which have been served (fully or partially) by a call already in flight")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    public V execute(K key, Function<K, V> call) {
+        return executeAll(Collections.singletonList(key), keys -> Collections.singletonMap(key, call.apply(key))).get(key);
+    }
+
+    /**
+     * Resolves the given keys by joining the calls already in flight for some of them and by issuing a single call for
+     * the remaining ones. The returned map doesn't contain the keys for which the call didn't provide a value.
+     */
+    public Map<K, V> executeAll(Collection<K> keys, Function<List<K>, Map<K, V>> call) {
+        Map<K, CompletableFuture<V>> joined = new HashMap<>();
+        Map<K, CompletableFuture<V>> owned = new LinkedHashMap<>();
+        new LinkedHashSet<>(keys).forEach(key -> {
+            CompletableFuture<V> future = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+            if (existing != null) {
+                joined.put(key, existing);
+            } else {
+                owned.put(key, future);
+            }
+        });
+        Map<K, V> result = new HashMap<>();
+        if (!owned.isEmpty()) {
+            issued.increment();
+            try {
+                Map<K, V> values = call.apply(new ArrayList<>(owned.keySet()));
+                owned.forEach((key, future) -> {
+                    V value = values != null ? values.get(key) : null;
+                    if (value != null) {
+                        result.put(key, value);
+                    }
+                    future.complete(value);
+                });
+            } catch (RuntimeException | Error e) {
+                owned.values().forEach(f -> f.completeExceptionally(e));
+                throw e;
+            } finally {
+                owned.forEach(inFlight::remove);
+            }
+        }
+        if (!joined.isEmpty()) {
+            coalesced.increment();
+            joined.forEach((key, future) -> {
+                V value = join(future);
+                if (value != null) {
+                    result.put(key, value);
+                }
+            });
+        }
+        return result;
+    }
+
+    private V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.models;
+
+import eu.ebrains.kg.service.helpers.Helpers;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * An already serialized response body together with its strong ETag (a fingerprint of its content).
+ */
+public class ETaggedBody implements Serializable {
+
+    private final String eTag;
+    private final byte[] body;
+
+    private ETaggedBody(String eTag, byte[] body) {
+        this.eTag = eTag;
+        this.body = body;
+    }
+
+    public static ETaggedBody of(byte[] body) {
+        return new ETaggedBody(String.format("\"%s\"", Helpers.fingerprint(body)), body);
+    }
+
+    /**
+     * @return an ETag of a body the client already has - the body itself is not known
+     */
+    public static ETaggedBody withoutBody(String eTag) {
+        return new ETaggedBody(eTag, null);
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * @param ifNoneMatch the value of the "If-None-Match" header of the request (can be null)
+     * @return true if the client already has this version of the body
+     */
+    public boolean matches(String ifNoneMatch) {
+        return matches(eTag, ifNoneMatch);
+    }
+
+    /**
+     * @param ifNoneMatch the value of the "If-None-Match" header of the request (can be null)
+     * @return true if the given ETag is one of the ETags the client already has
+     */
+    public static boolean matches(String eTag, String ifNoneMatch) {
+        if (eTag == null || ifNoneMatch == null) {
+            return false;
+        }
+        // "If-None-Match" uses the weak comparison -> a weak ETag of the same content matches too
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(eTag));
+    }
+}
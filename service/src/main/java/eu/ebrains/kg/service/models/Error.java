@@ -23,9 +23,10 @@
 
 package eu.ebrains.kg.service.models;
 
+import java.io.Serializable;
 import java.util.UUID;
 
-public class Error {
+public class Error implements Serializable {
         private int code;
         private String message;
         private UUID instanceId;
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.models;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import eu.ebrains.kg.service.constants.EditorConstants;
+
+import java.util.List;
+
+/**
+ * The single representation of an instance received from kg-core: the payload is kept as a JSON tree and only
+ * converted where needed. The typed view (e.g. an InstanceFull) is created lazily on first access, the values of the
+ * fields are read by their fully qualified name.
+ */
+public class InstanceView<T> {
+
+    /**
+     * These (potentially big) parts of the payload are only read by the typed view - they are dropped from the tree
+     * as soon as it has been created.
+     */
+    private static final List<String> TYPED_VIEW_ONLY = List.of(EditorConstants.VOCAB_ALTERNATIVE, EditorConstants.VOCAB_INCOMING_LINKS, EditorConstants.VOCAB_PERMISSIONS);
+
+    private final ObjectMapper objectMapper;
+    private final ObjectNode payload;
+    private final Class<T> clazz;
+    private T result;
+
+    private InstanceView(ObjectMapper objectMapper, ObjectNode payload, Class<T> clazz, T result) {
+        this.objectMapper = objectMapper;
+        this.payload = payload;
+        this.clazz = clazz;
+        this.result = result;
+    }
+
+    public static <T> InstanceView<T> of(ObjectMapper objectMapper, ObjectNode payload, Class<T> clazz) {
+        return new InstanceView<>(objectMapper, payload, clazz, null);
+    }
+
+    /**
+     * @return a view without payload (e.g. for an instance which couldn't be loaded)
+     */
+    public static <T> InstanceView<T> ofResult(T result) {
+        return new InstanceView<>(null, null, null, result);
+    }
+
+    public synchronized T getResult() {
+        if (result == null && payload != null) {
+            result = objectMapper.convertValue(payload, clazz);
+            payload.remove(TYPED_VIEW_ONLY);
+        }
+        return result;
+    }
+
+    /**
+     * @return the value of the given property as plain java objects (maps, lists and values) or null if it's not set
+     */
+    public synchronized Object getValue(String fullyQualifiedName) {
+        JsonNode value = payload != null ? payload.get(fullyQualifiedName) : null;
+        return value != null && !value.isNull() ? objectMapper.convertValue(value, Object.class) : null;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.models.instance;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import eu.ebrains.kg.service.models.type.StructureOfField;
+
+/**
+ * The value of a field of an instance. The structure of the field is shared between instances and is rendered
+ * together with the value (and the inference state) to build the combined payload the editor UI expects.
+ */
+public class FieldValue {
+
+    public FieldValue(StructureOfField structure, Object value) {
+        this.structure = structure;
+        this.value = value;
+    }
+
+    private StructureOfField structure;
+    private final Object value;
+    private Boolean inferred;
+
+    @JsonUnwrapped
+    public StructureOfField getStructure() {
+        return structure;
+    }
+
+    public void setStructure(StructureOfField structure) {
+        this.structure = structure;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    @JsonProperty("isInferred")
+    public Boolean getInferred() {
+        return inferred;
+    }
+
+    public void setInferred(Boolean inferred) {
+        this.inferred = inferred;
+    }
+
+    @JsonIgnore
+    public String getFullyQualifiedName() {
+        return structure.getFullyQualifiedName();
+    }
+}
@@ -27,7 +27,9 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import eu.ebrains.kg.service.constants.EditorConstants;
 
-public class IncomingLink {
+import java.io.Serializable;
+
+public class IncomingLink implements Serializable {
     @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
     public IncomingLink(
             @JsonProperty("@id") String kgId,
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+package eu.ebrains.kg.service.models.instance;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * An opaque position in the incoming links of an instance. kg-core only pages by offset - the cursor therefore
+ * carries the property, type, offset and page size so a client can keep on paging without re-sending (or knowing)
+ * them. It is bound to the instance it has been issued for.
+ */
+public record IncomingLinksCursor(String id, String property, String type, int from, int size) {
+
+    private static final String SEPARATOR = "\n";
+
+    public IncomingLinksCursor next() {
+        return new IncomingLinksCursor(id, property, type, from + size, size);
+    }
+
+    public String encode() {
+        String cursor = String.join(SEPARATOR, id, property, type, String.valueOf(from), String.valueOf(size));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor is malformed or has been issued for another instance
+     */
+    public static IncomingLinksCursor decode(String id, String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(SEPARATOR, -1);
+            if (parts.length != 5 || !parts[0].equals(id)) {
+                throw new IllegalArgumentException(String.format("The cursor %s is not valid for the instance %s", cursor, id));
+            }
+            return new IncomingLinksCursor(id, parts[1], parts[2], Integer.parseInt(parts[3]), Integer.parseInt(parts[4]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("The cursor %s is not valid", cursor), e);
+        }
+    }
+}
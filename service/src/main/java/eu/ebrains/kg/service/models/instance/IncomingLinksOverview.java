@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+package eu.ebrains.kg.service.models.instance;
+
+import eu.ebrains.kg.service.models.type.StructureOfIncomingLink;
+
+import java.util.Map;
+
+/**
+ * The incoming links of an instance (the first page by property and source type) together with the incoming links
+ * instances of its types can have.
+ */
+public class IncomingLinksOverview {
+
+    private final Map<String, Map<String, IncomingLinksByType>> incomingLinks;
+    private final Map<String, StructureOfIncomingLink> possibleIncomingLinks;
+
+    public IncomingLinksOverview(Map<String, Map<String, IncomingLinksByType>> incomingLinks, Map<String, StructureOfIncomingLink> possibleIncomingLinks) {
+        this.incomingLinks = incomingLinks;
+        this.possibleIncomingLinks = possibleIncomingLinks;
+    }
+
+    public Map<String, Map<String, IncomingLinksByType>> getIncomingLinks() {
+        return incomingLinks;
+    }
+
+    public Map<String, StructureOfIncomingLink> getPossibleIncomingLinks() {
+        return possibleIncomingLinks;
+    }
+}
@@ -20,25 +20,25 @@
  * (Human Brain Project SGA1, SGA2 and SGA3).
  *
  */
+package eu.ebrains.kg.service.models.instance;
 
-package eu.ebrains.kg.service.models;
+import eu.ebrains.kg.service.models.KGCoreResult;
 
-import java.util.Map;
+import java.util.List;
 
-public class ResultWithOriginalMap<T> {
-    private final Map<String,Object> originalMap;
-    private final T result;
+public class IncomingLinksPage extends KGCoreResult<List<IncomingLink>> {
 
-    public ResultWithOriginalMap(Map<String, Object> originalMap, T result) {
-        this.originalMap = originalMap;
-        this.result = result;
-    }
+    private String nextCursor;
 
-    public Map<String, Object> getOriginalMap() {
-        return originalMap;
+    /**
+     * @return the cursor of the following page or null if this is the last one
+     */
+    public String getNextCursor() {
+        return nextCursor;
     }
 
-    public T getResult() {
-        return result;
+    public IncomingLinksPage setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+        return this;
     }
 }
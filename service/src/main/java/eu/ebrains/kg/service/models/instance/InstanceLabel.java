@@ -31,10 +31,11 @@ import eu.ebrains.kg.service.models.HasError;
 import eu.ebrains.kg.service.models.HasId;
 import eu.ebrains.kg.service.models.type.SimpleType;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.stream.Collectors;
 
-public class InstanceLabel implements HasId, HasError {
+public class InstanceLabel implements HasId, HasError, Serializable {
     @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
     public InstanceLabel(
             @JsonProperty("@id") String kgId,
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+package eu.ebrains.kg.service.models.instance;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The parts of an instance a client is interested in: only the requested fields are bound and the optional parts
+ * ("alternatives", "incomingLinks", "possibleIncomingLinks") are neither requested from kg-core nor enriched if they
+ * are not included.
+ */
+public class InstanceProjection {
+
+    public static final String ALTERNATIVES = "alternatives";
+    public static final String INCOMING_LINKS = "incomingLinks";
+    public static final String POSSIBLE_INCOMING_LINKS = "possibleIncomingLinks";
+
+    public static final InstanceProjection ALL = new InstanceProjection(null, true, true, true);
+    public static final InstanceProjection WITHOUT_INCOMING_LINKS = new InstanceProjection(null, true, false, false);
+
+    private final Set<String> fields;
+    private final boolean alternatives;
+    private final boolean incomingLinks;
+    private final boolean possibleIncomingLinks;
+
+    private InstanceProjection(Set<String> fields, boolean alternatives, boolean incomingLinks, boolean possibleIncomingLinks) {
+        this.fields = fields;
+        this.alternatives = alternatives;
+        this.incomingLinks = incomingLinks;
+        this.possibleIncomingLinks = possibleIncomingLinks;
+    }
+
+    /**
+     * @param fields the fully qualified names of the fields to return - all fields if null
+     * @param include the optional parts to return - all of them if null
+     */
+    public static InstanceProjection of(Collection<String> fields, Collection<String> include) {
+        if (fields == null && include == null) {
+            return ALL;
+        }
+        if (include != null) {
+            include.stream().filter(i -> !List.of(ALTERNATIVES, INCOMING_LINKS, POSSIBLE_INCOMING_LINKS).contains(i)).findFirst().ifPresent(i -> {
+                throw new IllegalArgumentException(String.format("Unknown part to include: %s", i));
+            });
+        }
+        return new InstanceProjection(fields != null ? new HashSet<>(fields) : null,
+                include == null || include.contains(ALTERNATIVES),
+                include == null || include.contains(INCOMING_LINKS),
+                include == null || include.contains(POSSIBLE_INCOMING_LINKS));
+    }
+
+    public boolean includesAllFields() {
+        return fields == null;
+    }
+
+    public boolean includesField(String fullyQualifiedName) {
+        return fields == null || fields.contains(fullyQualifiedName);
+    }
+
+    public boolean includesAlternatives() {
+        return alternatives;
+    }
+
+    public boolean includesIncomingLinks() {
+        return incomingLinks;
+    }
+
+    public boolean includesPossibleIncomingLinks() {
+        return possibleIncomingLinks;
+    }
+}
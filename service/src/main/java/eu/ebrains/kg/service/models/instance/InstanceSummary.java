@@ -27,7 +27,6 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import eu.ebrains.kg.service.constants.EditorConstants;
 import eu.ebrains.kg.service.models.commons.Permissions;
-import eu.ebrains.kg.service.models.type.StructureOfField;
 
 import java.util.List;
 import java.util.Map;
@@ -46,13 +45,13 @@ public class InstanceSummary extends InstanceLabel {
     }
 
     private final Permissions permissions;
-    private Map<String, StructureOfField> fields;
+    private Map<String, FieldValue> fields;
 
-    public Map<String, StructureOfField> getFields() {
+    public Map<String, FieldValue> getFields() {
         return fields;
     }
 
-    public void setFields(Map<String, StructureOfField> fields) {
+    public void setFields(Map<String, FieldValue> fields) {
         this.fields = fields;
     }
 
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.models.type;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The fully resolved structure of the form for instances of a given list of types: the merged fields of all types
+ * (including the fields of nested types and the information about their target types), the promoted fields and the
+ * label field. It is shared between all instances of the same list of types and is therefore never changed.
+ */
+public class FormSchema implements Serializable {
+
+    public FormSchema(Map<String, StructureOfField> fields, List<String> promotedFields, String labelField, Set<String> types) {
+        this.fields = fields;
+        this.promotedFields = promotedFields;
+        this.labelField = labelField;
+        this.types = types;
+    }
+
+    private final Map<String, StructureOfField> fields;
+    private final List<String> promotedFields;
+    private final String labelField;
+    private final Set<String> types;
+
+    public Map<String, StructureOfField> getFields() {
+        return fields;
+    }
+
+    public List<String> getPromotedFields() {
+        return promotedFields;
+    }
+
+    public String getLabelField() {
+        return labelField;
+    }
+
+    /**
+     * @return the names of all types the schema has been built from - the types of the instance as well as their
+     * nested and target types
+     */
+    public Set<String> getTypes() {
+        return types;
+    }
+}
@@ -88,6 +88,48 @@ public class StructureOfField implements Serializable {
         this.defaultTargetType = kgDefaultTargetType;
         this.validation = kgValidation;
         this.warning = kgWarning;
+        this.fields = null;
+    }
+
+    private StructureOfField(StructureOfField original, Map<String, StructureOfField> fields, List<SimpleType> targetTypes) {
+        this.fullyQualifiedName = original.fullyQualifiedName;
+        this.numOfOccurrences = original.numOfOccurrences;
+        this.order = original.order;
+        this.name = original.name;
+        this.label = original.label;
+        this.widget = original.widget;
+        this.regex = original.regex;
+        this.maxLength = original.maxLength;
+        this.minItems = original.minItems;
+        this.maxItems = original.maxItems;
+        this.minValue = original.minValue;
+        this.maxValue = original.maxValue;
+        this.labelTooltip = original.labelTooltip;
+        this.searchable = original.searchable;
+        this.required = original.required;
+        this.readOnly = original.readOnly;
+        this.markdown = original.markdown;
+        this.targetTypes = targetTypes;
+        this.defaultTargetType = original.defaultTargetType;
+        this.validation = original.validation;
+        this.warning = original.warning;
+        this.fields = fields;
+    }
+
+    /**
+     * The structure of a field is shared (e.g. by all instances of a type) and therefore never changed -> we create
+     * a (shallow) copy with the given nested fields instead.
+     */
+    public StructureOfField withFields(Map<String, StructureOfField> fields) {
+        return new StructureOfField(this, fields, this.targetTypes);
+    }
+
+    /**
+     * The structure of a field is shared (e.g. by all instances of a type) and therefore never changed -> we create
+     * a (shallow) copy with the given target types instead.
+     */
+    public StructureOfField withTargetTypes(List<SimpleType> targetTypes) {
+        return new StructureOfField(this, this.fields, targetTypes);
     }
 
     private final String fullyQualifiedName;
@@ -108,13 +150,9 @@ public class StructureOfField implements Serializable {
     private final Boolean required;
     private final Boolean readOnly;
     private final Boolean markdown;
-    private Map<String, StructureOfField> fields;
-    private transient Object value;
-
-    private transient Boolean inferred;
-
-    private String defaultTargetType;
-    private List<SimpleType> targetTypes;
+    private final Map<String, StructureOfField> fields;
+    private final String defaultTargetType;
+    private final List<SimpleType> targetTypes;
     private final List<ValidationRule> validation;
 
     private final String warning;
@@ -144,27 +182,6 @@ public class StructureOfField implements Serializable {
         return CollectionUtils.isEmpty(targetTypes)? Collections.emptyList():targetTypes.stream().map(SimpleType::getName).collect(Collectors.toList());
     }
 
-    public void setTargetTypes(List<SimpleType> targetTypes) {
-        this.targetTypes = targetTypes;
-    }
-
-    public Object getValue() {
-        return value;
-    }
-
-    public void setValue(Object value) {
-        this.value = value;
-    }
-
-    @JsonProperty("isInferred")
-    public Boolean getInferred() {
-        return this.inferred;
-    }
-
-    public void setInferred(Boolean inferred) {
-        this.inferred = inferred;
-    }
-
     public String getFullyQualifiedName() {
         return fullyQualifiedName;
     }
@@ -199,8 +216,6 @@ public class StructureOfField implements Serializable {
 
     public Map<String, StructureOfField> getFields() { return fields; }
 
-    public void setFields(Map<String, StructureOfField> fields) { this.fields = fields; }
-
     @JsonProperty("isRequired")
     public Boolean getRequired() {
         return required;
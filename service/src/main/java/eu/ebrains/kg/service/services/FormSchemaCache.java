@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.services;
+
+import eu.ebrains.kg.service.models.type.FormSchema;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the {@link FormSchema} by the list of type names it has been built for. The order of the types is part of the
+ * key since it decides which type provides the label field. Since a schema combines the information of several types,
+ * the whole cache is cleared as soon as any type changes.
+ */
+@Component
+public class FormSchemaCache {
+
+    private static final String CACHE_NAME = "formSchemas";
+
+    private final Cache cache;
+
+    public FormSchemaCache(CacheManager cacheManager) {
+        this.cache = cacheManager.getCache(CACHE_NAME);
+    }
+
+    public static String key(Collection<String> types) {
+        return types.stream().filter(Objects::nonNull).distinct().collect(Collectors.joining("|"));
+    }
+
+    public FormSchema get(String key) {
+        return cache.get(key, FormSchema.class);
+    }
+
+    public void put(String key, FormSchema formSchema) {
+        cache.put(key, formSchema);
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+package eu.ebrains.kg.service.services;
+
+import eu.ebrains.kg.service.helpers.Helpers;
+import eu.ebrains.kg.service.models.ETaggedBody;
+import eu.ebrains.kg.service.models.instance.IncomingLink;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the serialized incoming links of an instance and the pages of its incoming links per user for a short time
+ * (see the expiry of "incomingLinks" and "incomingLinkPages" in ehcache.xml). Any instance written by this service can
+ * be the source of incoming links of other instances - the whole cache is therefore cleared with every write.
+ */
+@Component
+public class IncomingLinksCache {
+
+    private static final String CACHE_NAME = "incomingLinks";
+    private static final String PAGES_CACHE_NAME = "incomingLinkPages";
+
+    private final Cache cache;
+    private final Cache pages;
+    private final AtomicLong generation = new AtomicLong();
+
+    public IncomingLinksCache(CacheManager cacheManager) {
+        this.cache = cacheManager.getCache(CACHE_NAME);
+        this.pages = cacheManager.getCache(PAGES_CACHE_NAME);
+    }
+
+    private static String key(String authorization, String id) {
+        return String.format("%s|%s", Helpers.fingerprint(authorization.getBytes(StandardCharsets.UTF_8)), id);
+    }
+
+    /**
+     * @return the key of the given page for the current user or null if there is no user
+     */
+    public String pageKey(String id, String property, String type, int from, int size) {
+        String authorization = Helpers.getAuthorization();
+        return authorization != null ? String.format("%s|%s|%s|%d|%d", key(authorization, id), property, type, from, size) : null;
+    }
+
+    public Page getPage(String pageKey) {
+        return pages.get(pageKey, Page.class);
+    }
+
+    /**
+     * @return the current generation of the cache - pass it to {@link #putPage(String, Page, long)} to prevent pages
+     * loaded before a write from being stored after it
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public void putPage(String pageKey, Page page, long generation) {
+        if (generation == this.generation.get()) {
+            pages.put(pageKey, page);
+        }
+    }
+
+    public ETaggedBody get(String id) {
+        String authorization = Helpers.getAuthorization();
+        return authorization != null ? cache.get(key(authorization, id), ETaggedBody.class) : null;
+    }
+
+    public void put(String id, ETaggedBody incomingLinks) {
+        String authorization = Helpers.getAuthorization();
+        if (authorization != null) {
+            cache.put(key(authorization, id), incomingLinks);
+        }
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        cache.clear();
+        pages.clear();
+    }
+
+    public record Page(List<IncomingLink> data, Integer total, Integer from, Integer size) implements Serializable {}
+}
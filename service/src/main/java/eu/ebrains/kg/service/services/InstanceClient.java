@@ -23,96 +23,349 @@
 
 package eu.ebrains.kg.service.services;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import eu.ebrains.kg.service.constants.EditorConstants;
 import eu.ebrains.kg.service.controllers.IdController;
+import eu.ebrains.kg.service.helpers.Helpers;
+import eu.ebrains.kg.service.helpers.MicroBatcher;
 import eu.ebrains.kg.service.models.HasError;
 import eu.ebrains.kg.service.models.KGCoreResult;
-import eu.ebrains.kg.service.models.ResultWithOriginalMap;
+import eu.ebrains.kg.service.models.InstanceView;
 import eu.ebrains.kg.service.models.commons.Permissions;
 import eu.ebrains.kg.service.models.commons.UserSummary;
 import eu.ebrains.kg.service.models.instance.*;
+import eu.ebrains.kg.service.models.type.SimpleType;
+import eu.ebrains.kg.service.models.type.StructureOfIncomingLink;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.reactive.function.BodyInserters;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 @Component
 public class InstanceClient {
 
     private static final int INCOMING_LINKS_PAGE_SIZE = 10;
 
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
     private final IdController idController;
     private final ObjectMapper objectMapper;
     private final ServiceCall kg;
     private final UserClient users;
-
-    public InstanceClient(IdController idController, ServiceCall kg, ObjectMapper jacksonObjectMapper, UserClient users) {
+    private final InstanceLabelCache labelCache;
+    private final IncomingLinksCache incomingLinksCache;
+    private final int bulkChunkSize;
+    private final int bulkParallelism;
+    private final DistributionSummary bulkChunks;
+    private final Timer bulkChunkDuration;
+    private final MicroBatcher<BatchKey, String, List<byte[]>> batcher;
+    private final ConcurrentMap<String, Mono<IncomingLinksCache.Page>> incomingLinksPrefetches = new ConcurrentHashMap<>();
+    private final Counter prefetchedPages;
+
+    public InstanceClient(IdController idController, ServiceCall kg, ObjectMapper jacksonObjectMapper, UserClient users, InstanceLabelCache labelCache, IncomingLinksCache incomingLinksCache, MeterRegistry meterRegistry,
+                          @Value("${kg.instances.bulk.chunkSize}") int bulkChunkSize, @Value("${kg.instances.bulk.parallelism}") int bulkParallelism,
+                          @Value("${kg.instances.batch.window}") long batchWindow, @Value("${kg.instances.batch.maxSize}") int batchMaxSize) {
         this.idController = idController;
         this.kg = kg;
         this.objectMapper = jacksonObjectMapper;
         this.users = users;
+        this.labelCache = labelCache;
+        this.incomingLinksCache = incomingLinksCache;
+        this.bulkChunkSize = Math.max(1, bulkChunkSize);
+        this.bulkParallelism = Math.max(1, bulkParallelism);
+        Gauge.builder("kg.editor.instances.bulk.chunkSize", () -> this.bulkChunkSize).register(meterRegistry);
+        Gauge.builder("kg.editor.instances.bulk.parallelism", () -> this.bulkParallelism).register(meterRegistry);
+        this.bulkChunks = DistributionSummary.builder("kg.editor.instances.bulk.chunks")
+                .description("Number of chunks a bulk request to kg-core has been split into")
+                .register(meterRegistry);
+        this.bulkChunkDuration = Timer.builder("kg.editor.instances.bulk.chunk.duration")
+                .description("Time to load a single chunk of a bulk request from kg-core")
+                .register(meterRegistry);
+        this.batcher = new MicroBatcher<>("instancesByIds", batchWindow, batchMaxSize, meterRegistry);
+        this.prefetchedPages = Counter.builder("kg.editor.incomingLinks.pages.cached")
+                .description("Number of incoming link pages which have been served from the cache (usually prefetched)")
+                .register(meterRegistry);
     }
 
-    public <T extends HasError> Map<String, ResultWithOriginalMap<T>> getInstances(List<String> ids,
+    public <T extends HasError> Map<String, InstanceView<T>> getInstances(List<String> ids,
                                                                                    String stage,
                                                                                    boolean returnAlternatives,
                                                                                    boolean returnPermissions,
                                                                                    boolean returnEmbedded,
                                                                                    boolean returnIncomingLinks,
                                                                                    Class<T> clazz) {
+        String relativeUrl = getInstancesByIdsUrl(stage, returnAlternatives, returnPermissions, returnEmbedded, returnIncomingLinks);
+        List<String> distinctIds = ids.stream().distinct().toList();
+        Map<String, InstanceView<T>> result = new HashMap<>();
+        String authorization = Helpers.getAuthorization();
+        if (!returnAlternatives && !returnEmbedded && !returnIncomingLinks && authorization != null) {
+            // Lightweight lookups (labels, summaries) of the same user are batched - every caller reads its own
+            // instances from the shared responses so the views are never shared between requests.
+            Set<String> requestedIds = new HashSet<>(distinctIds);
+            List<byte[]> responses = batcher.execute(new BatchKey(authorization, relativeUrl), distinctIds, batchIds -> Flux.fromIterable(loadChunks(relativeUrl, batchIds))
+                    .flatMap(chunk -> chunk, bulkParallelism)
+                    .collectList()
+                    .block());
+            if (responses != null) {
+                responses.forEach(response -> result.putAll(readInstancesByIds(response, requestedIds, clazz)));
+            }
+            return result;
+        }
+        streamInstances(distinctIds, relativeUrl, clazz).toIterable().forEach(result::putAll);
+        return result;
+    }
+
+    /**
+     * Loads the instances like {@link #getInstances(List, String, boolean, boolean, boolean, boolean, Class)} (but
+     * without batching) and provides the instances of every chunk as soon as it has been loaded (in the order of
+     * arrival). The requests are created in the calling thread - it has to be the thread of the user request.
+     */
+    public <T extends HasError> Flux<Map<String, InstanceView<T>>> requestInstances(List<String> ids,
+                                                                                   String stage,
+                                                                                   boolean returnAlternatives,
+                                                                                   boolean returnPermissions,
+                                                                                   boolean returnEmbedded,
+                                                                                   boolean returnIncomingLinks,
+                                                                                   Class<T> clazz) {
+        String relativeUrl = getInstancesByIdsUrl(stage, returnAlternatives, returnPermissions, returnEmbedded, returnIncomingLinks);
+        return streamInstances(ids.stream().distinct().toList(), relativeUrl, clazz);
+    }
+
+    private <T extends HasError> Flux<Map<String, InstanceView<T>>> streamInstances(List<String> distinctIds, String relativeUrl, Class<T> clazz) {
+        return Flux.fromIterable(loadChunks(relativeUrl, distinctIds))
+                .flatMap(chunk -> chunk.map(response -> readInstancesByIds(response, null, clazz)), bulkParallelism);
+    }
+
+    private static String getInstancesByIdsUrl(String stage, boolean returnAlternatives, boolean returnPermissions, boolean returnEmbedded, boolean returnIncomingLinks) {
         String incomingLinksPageSizeParam = returnIncomingLinks?String.format("&incomingLinksPageSize=%d", INCOMING_LINKS_PAGE_SIZE):"";
-        String relativeUrl = String.format("instancesByIds?stage=%s&returnAlternatives=%b&returnPermissions=%b&returnEmbedded=%b&returnIncomingLinks=%b%s", stage, returnAlternatives, returnPermissions, returnEmbedded, returnIncomingLinks, incomingLinksPageSizeParam);
-        KGCoreResult.Single originalMap = kg.client(true).post().uri(kg.url(relativeUrl))
-                .body(BodyInserters.fromValue(ids))
-                .retrieve()
-                .bodyToMono(KGCoreResult.Single.class)
-                .block();
-        HashMap<String, ResultWithOriginalMap<T>> result = new HashMap<>();
-        if (originalMap != null && originalMap.getData() != null) {
-            originalMap.getData().keySet().forEach(f -> {
-                Object o = originalMap.getData().get(f);
-                KGCoreResult.Single r = objectMapper.convertValue(o, KGCoreResult.Single.class);
-                if(f != null) {
-                    if (r.getData() != null) {
-                        result.put(f, buildResultWithOriginalMap(r.getData(), clazz));
-                    } else if (r.getError() != null) {
-                        T t = objectMapper.convertValue(new HashMap<>(), clazz);
-                        t.setError(r.getError());
-                        result.put(f,  new ResultWithOriginalMap<>(null, t));
+        return String.format("instancesByIds?stage=%s&returnAlternatives=%b&returnPermissions=%b&returnEmbedded=%b&returnIncomingLinks=%b%s", stage, returnAlternatives, returnPermissions, returnEmbedded, returnIncomingLinks, incomingLinksPageSizeParam);
+    }
+
+    private List<Mono<byte[]>> loadChunks(String relativeUrl, List<String> ids) {
+        List<Mono<byte[]>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += bulkChunkSize) {
+            List<String> chunk = ids.subList(i, Math.min(i + bulkChunkSize, ids.size()));
+            // The requests are built in the current thread since the user token is read from the current request
+            chunks.add(kg.client(true).post().uri(kg.url(relativeUrl))
+                    .body(BodyInserters.fromValue(chunk))
+                    .retrieve()
+                    .bodyToMono(byte[].class)
+                    .elapsed()
+                    .map(response -> {
+                        bulkChunkDuration.record(Duration.ofMillis(response.getT1()));
+                        return response.getT2();
+                    }));
+        }
+        bulkChunks.record(chunks.size());
+        return chunks;
+    }
+
+    /**
+     * Batches are only shared by the requests of the same user (to apply the same permissions) asking for the same
+     * representation of the instances.
+     */
+    private record BatchKey(String authorization, String relativeUrl) {}
+
+    /**
+     * Walks the payload of "instancesByIds" in a single pass: the instance of every id is read into its tree once - the
+     * typed view is only created from it when needed. If requested ids are given, the instances of all other ids are
+     * skipped.
+     */
+    <T extends HasError> Map<String, InstanceView<T>> readInstancesByIds(byte[] response, Set<String> requestedIds, Class<T> clazz) {
+        Map<String, InstanceView<T>> result = new HashMap<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(response)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return result;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                if (parser.nextToken() == JsonToken.START_OBJECT && field.equals("data")) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String id = parser.getCurrentName();
+                        parser.nextToken();
+                        if (requestedIds != null && !requestedIds.contains(id)) {
+                            parser.skipChildren();
+                            continue;
+                        }
+                        InstanceView<T> instance = readInstanceResult(parser, clazz);
+                        if (instance != null) {
+                            result.put(id, instance);
+                        }
                     }
+                } else {
+                    parser.skipChildren();
                 }
-            });
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
         return result;
     }
 
+    private <T extends HasError> InstanceView<T> readInstanceResult(JsonParser parser, Class<T> clazz) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        InstanceView<T> data = null;
+        eu.ebrains.kg.service.models.Error error = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_OBJECT && field.equals("data")) {
+                data = InstanceView.of(objectMapper, objectMapper.readTree(parser), clazz);
+            } else if (value == JsonToken.START_OBJECT && field.equals("error")) {
+                error = objectMapper.readValue(parser, eu.ebrains.kg.service.models.Error.class);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (data == null && error != null) {
+            T t = objectMapper.convertValue(new HashMap<>(), clazz);
+            t.setError(error);
+            return InstanceView.ofResult(t);
+        }
+        return data;
+    }
+
     private static class IncomingLinksResult extends KGCoreResult<List<IncomingLink>> {}
 
-    public KGCoreResult<List<IncomingLink>> getIncomingLinks(String id,
-                                                        String property,
-                                                        String type,
-                                                        Integer from,
-                                                        Integer size) {
+    /**
+     * Pages are cached per user and the following page is loaded in the background as soon as a page has been served,
+     * so a client paging through the incoming links usually finds the next page in the cache.
+     */
+    public IncomingLinksPage getIncomingLinks(String id,
+                                              String property,
+                                              String type,
+                                              int from,
+                                              int size) {
+        String pageKey = incomingLinksCache.pageKey(id, property, type, from, size);
+        if (pageKey == null) {
+            IncomingLinksResult links = requestIncomingLinks(id, property, type, from, size).block();
+            return links != null ? toIncomingLinksPage(links.getData(), links.getTotal(), links.getFrom(), links.getSize()) : null;
+        }
+        IncomingLinksCache.Page page = incomingLinksCache.getPage(pageKey);
+        if (page != null) {
+            prefetchedPages.increment();
+        } else {
+            Mono<IncomingLinksCache.Page> prefetch = incomingLinksPrefetches.get(pageKey);
+            page = prefetch != null ? prefetch.block() : loadIncomingLinksPage(pageKey, id, property, type, from, size).block();
+        }
+        if (page == null) {
+            return null;
+        }
+        if (page.total() != null && from + size < page.total()) {
+            prefetchIncomingLinksPage(id, property, type, from + size, size);
+        }
+        return toIncomingLinksPage(page.data(), page.total(), page.from(), page.size());
+    }
 
-        String relativeUrl = String.format("instances/%s/incomingLinks?stage=IN_PROGRESS&property=%s&type=%s&from=%d&size=%d", id, property, type, from, size);
-        IncomingLinksResult response = kg.client(true).get().uri(kg.url(relativeUrl)).retrieve().bodyToMono(IncomingLinksResult.class).block();
-        if(response!=null){
-            response.getData().forEach(lk -> {
-                        UUID uuid = idController.simplifyFullyQualifiedId(lk.getId());
-                        if(uuid!=null){
-                            lk.setId(uuid.toString());
-                        }
+    private static IncomingLinksPage toIncomingLinksPage(List<IncomingLink> data, Integer total, Integer from, Integer size) {
+        IncomingLinksPage page = new IncomingLinksPage();
+        page.setData(data).setTotalResults(total).setFrom(from).setSize(size);
+        return page;
+    }
 
-            });
-            return response;
+    private Mono<IncomingLinksCache.Page> loadIncomingLinksPage(String pageKey, String id, String property, String type, int from, int size) {
+        long generation = incomingLinksCache.generation();
+        return requestIncomingLinks(id, property, type, from, size).map(links -> {
+            IncomingLinksCache.Page page = new IncomingLinksCache.Page(links.getData(), links.getTotal(), links.getFrom(), links.getSize());
+            incomingLinksCache.putPage(pageKey, page, generation);
+            return page;
+        });
+    }
+
+    /**
+     * Loads the given page in the background - the request is built in the current thread (for the user token) but
+     * not waited for.
+     */
+    private void prefetchIncomingLinksPage(String id, String property, String type, int from, int size) {
+        String pageKey = incomingLinksCache.pageKey(id, property, type, from, size);
+        if (pageKey == null || incomingLinksPrefetches.containsKey(pageKey) || incomingLinksCache.getPage(pageKey) != null) {
+            return;
+        }
+        Mono<IncomingLinksCache.Page> prefetch = loadIncomingLinksPage(pageKey, id, property, type, from, size)
+                .doFinally(signal -> incomingLinksPrefetches.remove(pageKey))
+                .cache();
+        if (incomingLinksPrefetches.putIfAbsent(pageKey, prefetch) == null) {
+            prefetch.subscribe(page -> {}, e -> logger.debug("Was not able to prefetch the incoming links {}", pageKey, e));
         }
-        return null;
     }
 
-    public KGCoreResult<List<ResultWithOriginalMap<InstanceSummary>>> searchInstanceSummaries(String space,
+    private Mono<IncomingLinksResult> requestIncomingLinks(String id,
+                                                           String property,
+                                                           String type,
+                                                           Integer from,
+                                                           Integer size) {
+        String relativeUrl = String.format("instances/%s/incomingLinks?stage=IN_PROGRESS&property=%s&type=%s&from=%d&size=%d", id, property, type, from, size);
+        return kg.client(true).get().uri(kg.url(relativeUrl)).retrieve().bodyToMono(IncomingLinksResult.class).map(response -> {
+            if (response.getData() != null) {
+                response.getData().forEach(lk -> {
+                    UUID uuid = idController.simplifyFullyQualifiedId(lk.getId());
+                    if (uuid != null) {
+                        lk.setId(uuid.toString());
+                    }
+                });
+            }
+            return response;
+        });
+    }
+
+    /**
+     * Loads the first page of the incoming links of the instance for every property and source type of the given
+     * possible incoming links - the pages are loaded concurrently.
+     *
+     * @return the incoming links by property and source type
+     */
+    public Map<String, Map<String, IncomingLinksByType>> getIncomingLinksByType(String id, Map<String, StructureOfIncomingLink> possibleIncomingLinks) {
+        Map<String, Map<String, IncomingLinksByType>> result = new HashMap<>();
+        List<Mono<Void>> requests = new ArrayList<>();
+        possibleIncomingLinks.forEach((property, incomingLink) -> {
+            if (incomingLink != null && incomingLink.getSourceTypes() != null) {
+                incomingLink.getSourceTypes().forEach(sourceType -> {
+                    SimpleType type = sourceType.getType();
+                    // The requests are built in the current thread since the user token is read from the current request
+                    requests.add(requestIncomingLinks(id, property, type.getName(), 0, INCOMING_LINKS_PAGE_SIZE).map(links -> {
+                        if (links.getData() != null && !links.getData().isEmpty()) {
+                            IncomingLinksByType linksByType = new IncomingLinksByType(type.getLabel(), type.getColor(), links.getData(),
+                                    Optional.ofNullable(links.getTotal()).orElse(links.getData().size()),
+                                    Optional.ofNullable(links.getFrom()).orElse(0),
+                                    Optional.ofNullable(links.getSize()).orElse(links.getData().size()), null);
+                            synchronized (result) {
+                                result.computeIfAbsent(property, p -> new HashMap<>()).put(type.getName(), linksByType);
+                            }
+                        }
+                        return links;
+                    }).then());
+                });
+            }
+        });
+        Flux.fromIterable(requests).flatMap(request -> request, bulkParallelism).then().block();
+        return result;
+    }
+
+    public KGCoreResult<List<InstanceView<InstanceSummary>>> searchInstanceSummaries(String space,
                                                                                        String type,
                                                                                        Integer from,
                                                                                        Integer size,
@@ -127,38 +380,56 @@ public class InstanceClient {
         if (size != null) {
             relativeUrl = String.format("%s&size=%s", relativeUrl, size);
         }
-        KGCoreResult.List response = kg.client(true).get().uri(kg.url(relativeUrl)).retrieve().bodyToMono(KGCoreResult.List.class).block();
+        ObjectNode response = kg.client(true).get().uri(kg.url(relativeUrl)).retrieve().bodyToMono(ObjectNode.class).block();
         if(response!=null){
-            List<ResultWithOriginalMap<InstanceSummary>> resultList = response.getData().stream().map(m -> new ResultWithOriginalMap<>(m, objectMapper.convertValue(m, InstanceSummary.class))).toList();
-            return new KGCoreResult<List<ResultWithOriginalMap<InstanceSummary>>>().setData(resultList).setTotalResults(response.getTotal()).setFrom(response.getFrom()).setSize(response.getSize());
+            JsonNode data = response.remove("data");
+            KGCoreResult.List pagination = objectMapper.convertValue(response, KGCoreResult.List.class);
+            List<InstanceView<InstanceSummary>> resultList = new ArrayList<>();
+            if (data != null) {
+                data.forEach(instance -> {
+                    if (instance instanceof ObjectNode payload) {
+                        resultList.add(InstanceView.of(objectMapper, payload, InstanceSummary.class));
+                    }
+                });
+            }
+            return new KGCoreResult<List<InstanceView<InstanceSummary>>>().setData(resultList).setTotalResults(pagination.getTotal()).setFrom(pagination.getFrom()).setSize(pagination.getSize());
         }
         return null;
     }
 
     private static class ScopeFromKG extends KGCoreResult<Scope>{}
 
-    public Scope getInstanceScope(String id) {
+    /**
+     * @return the request for the scope of the instance - it has to be created in the thread of the user request
+     */
+    public Mono<Scope> requestInstanceScope(String id) {
         String relativeUrl = String.format("instances/%s/scope?stage=IN_PROGRESS&returnPermissions=true&applyRestrictions=true", id);
-        ScopeFromKG response = kg.client(true).get().uri(kg.url(relativeUrl))
+        return kg.client(true).get().uri(kg.url(relativeUrl))
                 .retrieve()
                 .bodyToMono(ScopeFromKG.class)
-                .block();
-        return response!=null ? response.getData() : null;
+                .mapNotNull(KGCoreResult::getData);
     }
 
     private static class NeighborFromKG extends KGCoreResult<Neighbor>{}
-    public KGCoreResult<Neighbor> getNeighbors(String id) {
+
+    /**
+     * @return the request for the neighbors of the instance - it has to be created in the thread of the user request
+     */
+    public Mono<Neighbor> requestNeighbors(String id) {
         String relativeUrl = String.format("instances/%s/neighbors?stage=IN_PROGRESS", id);
         return kg.client(true).get().uri(kg.url(relativeUrl))
                 .retrieve()
                 .bodyToMono(NeighborFromKG.class)
-                .block();
+                .mapNotNull(KGCoreResult::getData);
     }
 
     private static class SuggestionFromKG extends KGCoreResult<SuggestionStructure> {
     }
 
-    public KGCoreResult<SuggestionStructure> postSuggestions(String id,
+    /**
+     * @return the request for the suggestions - it has to be created in the thread of the user request
+     */
+    public Mono<KGCoreResult<SuggestionStructure>> requestSuggestions(String id,
                                                String field,
                                                String sourceType,
                                                String targetType,
@@ -180,25 +451,57 @@ public class InstanceClient {
                 .body(BodyInserters.fromValue(payload))
                 .retrieve()
                 .bodyToMono(SuggestionFromKG.class)
-                .block();
+                .map(suggestionStructure -> {
+                    if (suggestionStructure.getData() != null) {
+                        suggestionStructure.getData().getSuggestions().getData().forEach(s -> {
+                            if (s != null && s.getType() != null) {
+                                SimpleTypeWithSpaces fullType = suggestionStructure.getData().getTypes().get(s.getType().getName());
+                                if (fullType != null) {
+                                    s.setType(fullType);
+                                }
+                            }
+                        });
+                    }
+                    return suggestionStructure;
+                });
     }
 
-    public ResultWithOriginalMap<InstanceFull> getInstance(String id) {
-        String relativeUrl = String.format("instances/%s?stage=IN_PROGRESS&returnPermissions=true&returnAlternatives=true&returnIncomingLinks=true&incomingLinksPageSize=%d", id, INCOMING_LINKS_PAGE_SIZE);
-        KGCoreResult.Single response = kg.client(true).get().uri(kg.url(relativeUrl))
+    /**
+     * @return the request for the instance as it has been returned by kg-core (e.g. to detect if it has changed - see
+     * {@link #readInstance(byte[])}). It has to be created in the thread of the user request.
+     */
+    public Mono<byte[]> requestInstancePayload(String id, boolean withIncomingLinks) {
+        String incomingLinksParams = withIncomingLinks ? String.format("&returnIncomingLinks=true&incomingLinksPageSize=%d", INCOMING_LINKS_PAGE_SIZE) : "";
+        String relativeUrl = String.format("instances/%s?stage=IN_PROGRESS&returnPermissions=true&returnAlternatives=true%s", id, incomingLinksParams);
+        return kg.client(true).get().uri(kg.url(relativeUrl))
                 .retrieve()
-                .bodyToMono(KGCoreResult.Single.class)
-                .block();
-        return buildResultWithOriginalMap(response, InstanceFull.class);
+                .bodyToMono(byte[].class);
+    }
+
+    public InstanceView<InstanceFull> readInstance(byte[] payload) {
+        if (payload == null) {
+            return null;
+        }
+        try {
+            return buildInstanceView(objectMapper.readValue(payload, ObjectNode.class), InstanceFull.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
-    public Map<String, Object> getRawInstance(String id) {
+    /**
+     * @return the request for the raw instance - it has to be created in the thread of the user request
+     */
+    public Mono<Map<String, Object>> requestRawInstance(String id) {
         String relativeUrl = String.format("instances/%s?stage=IN_PROGRESS&returnPermissions=true&returnEmbedded=true", id);
-        Map<String, Object> result = kg.client(true).get().uri(kg.url(relativeUrl))
+        return kg.client(true).get().uri(kg.url(relativeUrl))
                 .retrieve()
                 .bodyToMono(Map.class)
-                .block();
-        if (result != null && result.containsKey("data")) {
+                .map(InstanceClient::extractPermissions);
+    }
+
+    private static Map<String, Object> extractPermissions(Map<String, Object> result) {
+        if (result.containsKey("data")) {
             final String permissionsKey = "permissions";
             try {
                 Map<String, Object> data = (HashMap<String, Object>) result.get("data");
@@ -217,97 +520,125 @@ public class InstanceClient {
         return result;
     }
 
-    public void deleteInstance(String id) {
+    /**
+     * @return the request deleting the instance - it has to be created in the thread of the user request
+     */
+    public Mono<Void> requestDeleteInstance(String id) {
         String relativeUrl = String.format("instances/%s", id);
-        kg.client(true).delete().uri(kg.url(relativeUrl))
+        return kg.client(true).delete().uri(kg.url(relativeUrl))
                 .retrieve()
                 .bodyToMono(Void.class)
-                .block();
+                .doOnSuccess(ignored -> {
+                    labelCache.invalidate(id);
+                    incomingLinksCache.clear();
+                });
     }
 
-    public ResultWithOriginalMap<InstanceFull> patchInstance(String id, Map<?, ?> body) {
+    /**
+     * @return the request for the update of the instance - it has to be created in the thread of the user request
+     */
+    public Mono<InstanceView<InstanceFull>> requestPatchInstance(String id, Map<?, ?> body) {
         String relativeUrl = String.format("instances/%s?returnPermissions=true&returnAlternatives=true&returnIncomingLinks=true&incomingLinksPageSize=%d", id, INCOMING_LINKS_PAGE_SIZE);
-        KGCoreResult.Single response = kg.client(true).patch().uri(kg.url(relativeUrl))
+        return kg.client(true).patch().uri(kg.url(relativeUrl))
                 .body(BodyInserters.fromValue(body))
                 .retrieve()
-                .bodyToMono(KGCoreResult.Single.class)
-                .block();
-        return buildResultWithOriginalMap(response, InstanceFull.class);
+                .bodyToMono(ObjectNode.class)
+                .doOnSuccess(ignored -> {
+                    labelCache.invalidate(id);
+                    incomingLinksCache.clear();
+                })
+                .mapNotNull(response -> buildInstanceView(response, InstanceFull.class));
     }
 
 
-    private <T> ResultWithOriginalMap<T> buildResultWithOriginalMap(KGCoreResult.Single response, Class<T> target) {
-        if (response != null) {
-            return buildResultWithOriginalMap(response.getData(), target);
-        }
-        return null;
-    }
-
-    private <T> ResultWithOriginalMap<T> buildResultWithOriginalMap(Map<String, Object> data, Class<T> target) {
-        if (data != null) {
-            T mapped = objectMapper.convertValue(data, target);
-            return new ResultWithOriginalMap<>(data, mapped);
+    private <T> InstanceView<T> buildInstanceView(ObjectNode response, Class<T> target) {
+        if (response != null && response.get("data") instanceof ObjectNode data) {
+            return InstanceView.of(objectMapper, data, target);
         }
         return null;
     }
 
 
-    public ResultWithOriginalMap<InstanceFull> postInstance(String id, String space, Map<?, ?> body) {
+    /**
+     * @return the request for the creation of the instance - it has to be created in the thread of the user request
+     */
+    public Mono<InstanceView<InstanceFull>> requestPostInstance(String id, String space, Map<?, ?> body) {
         String relativeUrl = String.format("instances/%s?returnPermissions=true&space=%s&returnAlternatives=true", id, space);
-        KGCoreResult.Single response = kg.client(true).post().uri(kg.url(relativeUrl))
+        return kg.client(true).post().uri(kg.url(relativeUrl))
                 .body(BodyInserters.fromValue(body))
                 .retrieve()
-                .bodyToMono(KGCoreResult.Single.class)
-                .block();
-        return buildResultWithOriginalMap(response, InstanceFull.class);
+                .bodyToMono(ObjectNode.class)
+                .doOnSuccess(ignored -> {
+                    labelCache.invalidate(id);
+                    incomingLinksCache.clear();
+                })
+                .mapNotNull(response -> buildInstanceView(response, InstanceFull.class));
     }
 
-    public ResultWithOriginalMap<InstanceFull> postInstance(String space, Map<?, ?> body) {
+    /**
+     * @return the request for the creation of the instance - it has to be created in the thread of the user request
+     */
+    public Mono<InstanceView<InstanceFull>> requestPostInstance(String space, Map<?, ?> body) {
         String relativeUrl = String.format("instances?returnPermissions=true&space=%s&returnAlternatives=true", space);
-        KGCoreResult.Single response = kg.client(true).post().uri(kg.url(relativeUrl))
+        return kg.client(true).post().uri(kg.url(relativeUrl))
                 .body(BodyInserters.fromValue(body))
                 .retrieve()
-                .bodyToMono(KGCoreResult.Single.class)
-                .block();
-        return buildResultWithOriginalMap(response, InstanceFull.class);
+                .bodyToMono(ObjectNode.class)
+                // A new instance can be the source of incoming links of any other instance
+                .doOnSuccess(ignored -> incomingLinksCache.clear())
+                .mapNotNull(response -> buildInstanceView(response, InstanceFull.class));
     }
 
     private static class UserIds extends KGCoreResult<List<String>>{}
-    public KGCoreResult<List<UserSummary>> getInvitedUsers(String id) {
+
+    /**
+     * @return the request for the invited users - the users are looked up in the callback of the first call, so the
+     * user token has to be provided by the reactor context (see {@link Helpers#withUserToken(Mono)})
+     */
+    public Mono<KGCoreResult<List<UserSummary>>> requestInvitedUsers(String id) {
         String relativeUrl = String.format("instances/%s/invitedUsers", id);
-        final KGCoreResult<List<String>> userIds = kg.client(true).get().uri(kg.url(relativeUrl))
+        return kg.client(true).get().uri(kg.url(relativeUrl))
                 .retrieve()
                 .bodyToMono(UserIds.class)
-                .block();
-        if(userIds!=null && !CollectionUtils.isEmpty(userIds.getData())){
-            final List<UserSummary> userSummaries = userIds.getData().stream().map(users::getUserById).filter(Objects::nonNull).toList();
-            return new KGCoreResult<List<UserSummary>>().setData(userSummaries);
-        }
-        return null;
+                .filter(userIds -> !CollectionUtils.isEmpty(userIds.getData()))
+                .flatMap(userIds -> Flux.fromIterable(userIds.getData())
+                        .flatMapSequential(users::requestUserById, bulkParallelism)
+                        .collectList()
+                        .map(userSummaries -> new KGCoreResult<List<UserSummary>>().setData(userSummaries)));
     }
 
-    public void moveInstance(String id, String space) {
+    /**
+     * @return the request moving the instance - it has to be created in the thread of the user request
+     */
+    public Mono<Void> requestMoveInstance(String id, String space) {
         String relativeUrl = String.format("instances/%s/spaces/%s", id, space);
-        kg.client(true).put().uri(kg.url(relativeUrl))
+        return kg.client(true).put().uri(kg.url(relativeUrl))
                 .retrieve()
                 .bodyToMono(Void.class)
-                .block();
+                .doOnSuccess(ignored -> {
+                    labelCache.invalidate(id);
+                    incomingLinksCache.clear();
+                });
     }
 
-    public void deleteInvitedUser(String id, String userId) {
+    /**
+     * @return the request deleting the invitation - it has to be created in the thread of the user request
+     */
+    public Mono<Void> requestDeleteInvitedUser(String id, String userId) {
         String relativeUrl = String.format("instances/%s/invitedUsers/%s", id, userId);
-        kg.client(true).delete().uri(kg.url(relativeUrl))
+        return kg.client(true).delete().uri(kg.url(relativeUrl))
                 .retrieve()
-                .bodyToMono(Void.class)
-                .block();
+                .bodyToMono(Void.class);
     }
 
-    public void addInvitation(String id, String userId) {
+    /**
+     * @return the request adding the invitation - it has to be created in the thread of the user request
+     */
+    public Mono<Void> requestAddInvitation(String id, String userId) {
         String relativeUrl = String.format("instances/%s/invitedUsers/%s", id, userId);
-        kg.client(true).put().uri(kg.url(relativeUrl))
+        return kg.client(true).put().uri(kg.url(relativeUrl))
                 .retrieve()
-                .bodyToMono(Void.class)
-                .block();
+                .bodyToMono(Void.class);
     }
 
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+package eu.ebrains.kg.service.services;
+
+import eu.ebrains.kg.service.helpers.Helpers;
+import eu.ebrains.kg.service.models.instance.InstanceLabel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Keeps the enriched labels of instances by id. Since the visible label depends on the permissions of the user, every
+ * label is kept for the authorization it has been loaded with (and its stage) only and is served for "kg.instances.labels.ttl"
+ * at most.
+ * <p>
+ * Every write of an instance handled by this service invalidates its labels for all users. The invalidation is kept
+ * as a marker, so a label which has been loaded before the write but is put afterwards is rejected. Labels are added
+ * atomically (as an entry processor on the native cache), so neither an invalidation nor the labels of other users
+ * can get lost by concurrent updates.
+ */
+@Component
+public class InstanceLabelCache {
+
+    private static final String CACHE_NAME = "instanceLabels";
+
+    private final javax.cache.Cache<Object, Object> cache;
+    private final long ttl;
+    private final Counter hits;
+    private final Counter misses;
+
+    public InstanceLabelCache(CacheManager cacheManager, MeterRegistry meterRegistry, @Value("${kg.instances.labels.ttl}") long ttl) {
+        this.cache = nativeCache(cacheManager.getCache(CACHE_NAME));
+        this.ttl = ttl;
+        this.hits = Counter.builder("kg.editor.instances.labels.cache")
+                .description("Number of instance labels looked up in the label cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("kg.editor.instances.labels.cache")
+                .description("Number of instance labels looked up in the label cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static javax.cache.Cache<Object, Object> nativeCache(Cache cache) {
+        if (cache == null || !(cache.getNativeCache() instanceof javax.cache.Cache)) {
+            throw new IllegalStateException(String.format("The cache %s has to be provided by JCache", CACHE_NAME));
+        }
+        return (javax.cache.Cache<Object, Object>) cache.getNativeCache();
+    }
+
+    private static String userKey(String authorization, String stage) {
+        return String.format("%s|%s", Helpers.fingerprint(authorization.getBytes(StandardCharsets.UTF_8)), stage);
+    }
+
+    /**
+     * @return the labels of the given ids which are cached for the current user - ids without a valid label are missing
+     */
+    public Map<String, InstanceLabel> getAll(Collection<String> ids, String stage) {
+        Map<String, InstanceLabel> result = new HashMap<>();
+        String authorization = Helpers.getAuthorization();
+        if (authorization == null || ttl <= 0) {
+            return result;
+        }
+        String userKey = userKey(authorization, stage);
+        long now = System.currentTimeMillis();
+        ids.forEach(id -> {
+            Entry entry = (Entry) cache.get(id);
+            CachedLabel label = entry != null ? entry.labels.get(userKey) : null;
+            if (label != null && now - label.fetchedAt <= ttl) {
+                result.put(id, label.label);
+            }
+        });
+        hits.increment(result.size());
+        misses.increment(ids.size() - (double) result.size());
+        return result;
+    }
+
+    /**
+     * Caches the given labels for the current user
+     *
+     * @param fetchedAt the time the labels have been requested from kg-core
+     */
+    public void putAll(Map<String, InstanceLabel> labels, String stage, long fetchedAt) {
+        String authorization = Helpers.getAuthorization();
+        if (authorization == null || ttl <= 0) {
+            return;
+        }
+        String userKey = userKey(authorization, stage);
+        labels.forEach((id, label) -> {
+            if (label != null && label.getError() == null) {
+                CachedLabel cachedLabel = new CachedLabel(label, fetchedAt);
+                cache.invoke(id, (mutableEntry, arguments) -> {
+                    Entry entry = (Entry) mutableEntry.getValue();
+                    if (entry == null || entry.invalidatedAt < fetchedAt) {
+                        mutableEntry.setValue(entry != null ? entry.with(userKey, cachedLabel, fetchedAt - ttl) : new Entry(0, Map.of(userKey, cachedLabel)));
+                    }
+                    return null;
+                });
+            }
+        });
+    }
+
+    /**
+     * Drops the labels of the given instance for all users - to be called whenever the instance is written.
+     */
+    public void invalidate(String id) {
+        if (id != null) {
+            cache.put(id, new Entry(System.currentTimeMillis(), Collections.emptyMap()));
+        }
+    }
+
+    public static class Entry implements Serializable {
+        private final long invalidatedAt;
+        private final Map<String, CachedLabel> labels;
+
+        private Entry(long invalidatedAt, Map<String, CachedLabel> labels) {
+            this.invalidatedAt = invalidatedAt;
+            this.labels = labels;
+        }
+
+        /**
+         * @return a copy of this entry with the given label - the labels fetched before the given time are dropped
+         */
+        private Entry with(String userKey, CachedLabel label, long expiredBefore) {
+            Map<String, CachedLabel> newLabels = new HashMap<>();
+            labels.forEach((k, v) -> {
+                if (v.fetchedAt >= expiredBefore) {
+                    newLabels.put(k, v);
+                }
+            });
+            newLabels.put(userKey, label);
+            return new Entry(invalidatedAt, newLabels);
+        }
+    }
+
+    private record CachedLabel(InstanceLabel label, long fetchedAt) implements Serializable {}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+package eu.ebrains.kg.service.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.ebrains.kg.service.helpers.Helpers;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Remembers the ETag of the enriched instance which has been sent to a user lately together with what it has been
+ * derived from: the payload received from kg-core (which contains the permissions of the user) and the structures of
+ * the types involved in the enrichment. As long as both are the same, the enriched instance is the same too and a
+ * conditional request can be answered without enriching the instance again.
+ */
+@Component
+public class InstanceValidatorCache {
+
+    private static final String CACHE_NAME = "instanceValidators";
+
+    private final Cache cache;
+    private final TypeCatalog typeCatalog;
+    private final TypeStructureCache typeStructureCache;
+    private final TypeRepository typeRepository;
+    private final ObjectMapper objectMapper;
+
+    public InstanceValidatorCache(CacheManager cacheManager, TypeCatalog typeCatalog, TypeStructureCache typeStructureCache, TypeRepository typeRepository, ObjectMapper jacksonObjectMapper) {
+        this.cache = cacheManager.getCache(CACHE_NAME);
+        this.typeCatalog = typeCatalog;
+        this.typeStructureCache = typeStructureCache;
+        this.typeRepository = typeRepository;
+        this.objectMapper = jacksonObjectMapper;
+    }
+
+    private static String key(String authorization, String id) {
+        return String.format("%s|%s", Helpers.fingerprint(authorization.getBytes(StandardCharsets.UTF_8)), id);
+    }
+
+    /**
+     * @return a marker which changes whenever any type might have changed - it has to be taken before the enrichment:
+     * if it is different afterwards, we can't tell which version of the types has been used and don't keep a validator.
+     */
+    public String getTypesGeneration() {
+        return String.format("%s|%d", typeCatalog.getVersion(), typeStructureCache.getGeneration());
+    }
+
+    /**
+     * @return the fingerprint of the current structures of the given types or null if any of them is unknown or stale
+     * (a stale structure has to be revalidated by an enrichment first)
+     */
+    String getTypesVersion(Collection<String> types) {
+        Map<String, Object> structures = new TreeMap<>();
+        for (String type : types) {
+            TypeCacheEntry<Map<String, Object>> entry = typeRepository.get(type, true, null, null);
+            if (entry == null) {
+                entry = typeRepository.get(type, false, null, null);
+            }
+            if (entry == null || typeRepository.isStale(entry)) {
+                return null;
+            }
+            structures.put(type, entry.getValue());
+        }
+        try {
+            return Helpers.fingerprint(objectMapper.writeValueAsBytes(structures));
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param revision the fingerprint of the payload received from kg-core
+     * @return the ETag of the enriched instance if it has been created from the same revision with the current structures of its types - otherwise null
+     */
+    public String get(String id, String revision) {
+        String authorization = Helpers.getAuthorization();
+        if (authorization == null) {
+            return null;
+        }
+        Validator validator = cache.get(key(authorization, id), Validator.class);
+        return validator != null && validator.revision.equals(revision) && Objects.equals(validator.typesVersion, getTypesVersion(validator.types)) ? validator.eTag : null;
+    }
+
+    /**
+     * @param types           the names of the types the instance has been enriched with
+     * @param typesGeneration the generation of the types before the enrichment (see {@link #getTypesGeneration()})
+     */
+    public void put(String id, String revision, Collection<String> types, String typesGeneration, String eTag) {
+        String authorization = Helpers.getAuthorization();
+        if (authorization != null && typesGeneration.equals(getTypesGeneration())) {
+            String typesVersion = getTypesVersion(types);
+            if (typesVersion != null) {
+                cache.put(key(authorization, id), new Validator(revision, List.copyOf(types), typesVersion, eTag));
+            }
+        }
+    }
+
+    public record Validator(String revision, List<String> types, String typesVersion, String eTag) implements Serializable {}
+}
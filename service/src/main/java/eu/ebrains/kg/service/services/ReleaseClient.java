@@ -26,6 +26,7 @@ package eu.ebrains.kg.service.services;
 import eu.ebrains.kg.service.models.KGCoreResult;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.BodyInserters;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 import java.util.Map;
@@ -34,37 +35,53 @@ import java.util.Map;
 public class ReleaseClient {
 
     private final ServiceCall kg;
+    private final InstanceLabelCache labelCache;
 
-    public ReleaseClient(ServiceCall kg) {
+    public ReleaseClient(ServiceCall kg, InstanceLabelCache labelCache) {
         this.kg = kg;
+        this.labelCache = labelCache;
     }
 
-    public void putRelease(String id) {
+    /**
+     * @return the request releasing the given instance - it has to be created in the thread of the user request
+     */
+    public Mono<Void> requestRelease(String id) {
         String relativeUrl = String.format("instances/%s/release",  id);
-        kg.client(true).put().uri(kg.url(relativeUrl))
+        return kg.client(true).put().uri(kg.url(relativeUrl))
             .retrieve()
             .bodyToMono(Map.class)
-            .block();
+            .doOnSuccess(r -> labelCache.invalidate(id))
+            .then();
     }
 
-    public void deleteRelease(String id) {
+    /**
+     * @return the request unreleasing the given instance - it has to be created in the thread of the user request
+     */
+    public Mono<Void> requestReleaseDeletion(String id) {
         String relativeUrl = String.format("instances/%s/release", id);
-        kg.client(true).delete().uri(kg.url(relativeUrl))
+        return kg.client(true).delete().uri(kg.url(relativeUrl))
                 .retrieve()
                 .bodyToMono(Map.class)
-                .block();
+                .doOnSuccess(r -> labelCache.invalidate(id))
+                .then();
     }
 
     private static class ReleaseStatusFromKG extends KGCoreResult<Map<String, KGCoreResult<String>>>{}
 
     public Map<String, KGCoreResult<String>> getReleaseStatus(List<String> ids, String releaseTreeScope) {
+        return requestReleaseStatus(ids, releaseTreeScope).block();
+    }
+
+    /**
+     * @return the request for the release status of the given instances - it has to be created in the thread of the user request
+     */
+    public Mono<Map<String, KGCoreResult<String>>> requestReleaseStatus(List<String> ids, String releaseTreeScope) {
         String relativeUrl = String.format("instancesByIds/release/status?releaseTreeScope=%s", releaseTreeScope);
-        ReleaseStatusFromKG response = kg.client(true).post().uri(kg.url(relativeUrl))
+        return kg.client(true).post().uri(kg.url(relativeUrl))
                 .body(BodyInserters.fromValue(ids))
                 .retrieve()
                 .bodyToMono(ReleaseStatusFromKG.class)
-                .block();
-        return response != null ? response.getData() : null;
+                .mapNotNull(KGCoreResult::getData);
     }
 
 }
@@ -24,27 +24,93 @@
 package eu.ebrains.kg.service.services;
 
 
+import eu.ebrains.kg.service.helpers.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
 
 @Component
 public class ServiceCall {
 
+    /**
+     * Requests to kg-core which are sent as POST but only read data
+     */
+    private static final Pattern READING_POST = Pattern.compile("/(instancesByIds|instancesByIds/release/status|typesByName)\\?|/suggestedLinksForProperty\\?");
+    private static final Set<HttpStatus> OVERLOAD_STATUS = Set.of(HttpStatus.TOO_MANY_REQUESTS, HttpStatus.BAD_GATEWAY, HttpStatus.SERVICE_UNAVAILABLE, HttpStatus.GATEWAY_TIMEOUT);
+
     private final WebClient userWithServiceAccountWebClient;
     private final WebClient userOnlyWebClient;
+    private final WebClient serviceAccountWebClient;
 
     private final String kgCoreEndpoint;
 
     private final String apiVersion;
 
+    private final AdaptiveConcurrencyLimiter readLimiter;
+    private final AdaptiveConcurrencyLimiter writeLimiter;
+
 
-    public ServiceCall(@Qualifier("asUserWithServiceAccount") WebClient userWithServiceAccountWebClient, @Qualifier("asUserOnly") WebClient userOnlyWebClient, @Value("${kgcore.endpoint}") String kgCoreEndpoint, @Value("${kgcore.apiVersion}") String apiVersion) {
-        this.userWithServiceAccountWebClient = userWithServiceAccountWebClient;
-        this.userOnlyWebClient = userOnlyWebClient;
+    public ServiceCall(@Qualifier("asUserWithServiceAccount") WebClient userWithServiceAccountWebClient, @Qualifier("asUserOnly") WebClient userOnlyWebClient, @Qualifier("asServiceAccount") WebClient serviceAccountWebClient, @Value("${kgcore.endpoint}") String kgCoreEndpoint, @Value("${kgcore.apiVersion}") String apiVersion,
+                       @Value("${kgcore.limit.enabled}") boolean limitEnabled,
+                       @Value("${kgcore.limit.read.initial}") int readInitialLimit, @Value("${kgcore.limit.read.min}") int readMinLimit, @Value("${kgcore.limit.read.max}") int readMaxLimit,
+                       @Value("${kgcore.limit.write.initial}") int writeInitialLimit, @Value("${kgcore.limit.write.min}") int writeMinLimit, @Value("${kgcore.limit.write.max}") int writeMaxLimit,
+                       @Value("${kgcore.limit.latencyThreshold}") long latencyThreshold, @Value("${kgcore.limit.backoffRatio}") double backoffRatio,
+                       @Value("${kgcore.limit.queue.maxSize}") int maxQueueSize, @Value("${kgcore.limit.queue.maxWait}") long maxWait, MeterRegistry meterRegistry) {
         this.kgCoreEndpoint = kgCoreEndpoint;
         this.apiVersion = apiVersion;
+        if (limitEnabled) {
+            this.readLimiter = new AdaptiveConcurrencyLimiter("read", readInitialLimit, readMinLimit, readMaxLimit, backoffRatio, Duration.ofMillis(latencyThreshold), maxQueueSize, Duration.ofMillis(maxWait), meterRegistry);
+            this.writeLimiter = new AdaptiveConcurrencyLimiter("write", writeInitialLimit, writeMinLimit, writeMaxLimit, backoffRatio, Duration.ofMillis(latencyThreshold), maxQueueSize, Duration.ofMillis(maxWait), meterRegistry);
+            this.userWithServiceAccountWebClient = userWithServiceAccountWebClient.mutate().filter(limitConcurrency()).build();
+            this.userOnlyWebClient = userOnlyWebClient.mutate().filter(limitConcurrency()).build();
+            this.serviceAccountWebClient = serviceAccountWebClient.mutate().filter(limitConcurrency()).build();
+        } else {
+            this.readLimiter = null;
+            this.writeLimiter = null;
+            this.userWithServiceAccountWebClient = userWithServiceAccountWebClient;
+            this.userOnlyWebClient = userOnlyWebClient;
+            this.serviceAccountWebClient = serviceAccountWebClient;
+        }
+    }
+
+    /**
+     * Limits the concurrent calls to kg-core adaptively (reads and writes separately) - once kg-core slows down, calls
+     * are queued shortly or rejected instead of piling up. Calls to other services (e.g. the user search) are not limited.
+     */
+    private ExchangeFilterFunction limitConcurrency() {
+        return (request, next) -> {
+            if (!request.url().toString().startsWith(kgCoreEndpoint)) {
+                return next.exchange(request);
+            }
+            AdaptiveConcurrencyLimiter limiter = isRead(request) ? readLimiter : writeLimiter;
+            // The permit is held until the body has been read (or released) - kg-core is busy until then
+            return limiter.limit(() -> next.exchange(request), response -> OVERLOAD_STATUS.contains(response.statusCode()), ServiceCall::isOverload,
+                    (response, release) -> response.mutate().body(body -> body
+                            .doOnComplete(() -> release.accept(null))
+                            .doOnError(release)
+                            .doOnCancel(() -> release.accept(null))).build());
+        };
+    }
+
+    private static boolean isRead(ClientRequest request) {
+        HttpMethod method = request.method();
+        return method == HttpMethod.GET || method == HttpMethod.HEAD || (method == HttpMethod.POST && READING_POST.matcher(request.url().toString()).find());
+    }
+
+    private static boolean isOverload(Throwable e) {
+        return e instanceof WebClientRequestException || e instanceof TimeoutException;
     }
 
     public String url(String relativeUri){
@@ -54,4 +120,11 @@ public class ServiceCall {
     public WebClient client(boolean useServiceAccount) {
         return useServiceAccount?userWithServiceAccountWebClient:userOnlyWebClient;
     }
+
+    /**
+     * A client which is not bound to a user request and therefore can be used in background tasks.
+     */
+    public WebClient serviceAccountClient() {
+        return serviceAccountWebClient;
+    }
 }
@@ -24,35 +24,76 @@
 package eu.ebrains.kg.service.services;
 
 import com.nimbusds.oauth2.sdk.util.CollectionUtils;
+import eu.ebrains.kg.service.helpers.Revalidator;
+import eu.ebrains.kg.service.helpers.SingleFlight;
 import eu.ebrains.kg.service.models.KGCoreResult;
 import eu.ebrains.kg.service.models.user.Space;
 import eu.ebrains.kg.service.models.type.StructureOfType;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Component
 public class SpaceClient {
 
+    private static final String TYPE_CATALOG_URL = "types?stage=IN_PROGRESS&withProperties=true&withIncomingLinks=true";
+
     private final ServiceCall kg;
+    private final TypeStructureCache typeStructureCache;
+    private final TypeDependencyGraph typeDependencyGraph;
+    private final FormSchemaCache formSchemaCache;
+    private final TypeRepository typeRepository;
+    private final TypeMetadataIndex typeMetadataIndex;
+    private final SingleFlight<String, List<Map<String, Object>>> typesFlight;
+    private final SingleFlight<TypeRequest, KGCoreResult.Single> typesByNameFlight;
+    private final Revalidator<String> typesRevalidator;
+    private final Revalidator<TypeRequest> typesByNameRevalidator;
 
-    public SpaceClient(ServiceCall kg) {
+    public SpaceClient(ServiceCall kg, TypeStructureCache typeStructureCache, TypeDependencyGraph typeDependencyGraph, FormSchemaCache formSchemaCache, TypeRepository typeRepository, TypeMetadataIndex typeMetadataIndex, MeterRegistry meterRegistry) {
         this.kg = kg;
+        this.typeStructureCache = typeStructureCache;
+        this.typeDependencyGraph = typeDependencyGraph;
+        this.formSchemaCache = formSchemaCache;
+        this.typeRepository = typeRepository;
+        this.typeMetadataIndex = typeMetadataIndex;
+        this.typesFlight = new SingleFlight<>("types", meterRegistry);
+        this.typesByNameFlight = new SingleFlight<>("typesByName", meterRegistry);
+        Executor revalidationExecutor = createRevalidationExecutor();
+        this.typesRevalidator = new Revalidator<>("types", revalidationExecutor, meterRegistry);
+        this.typesByNameRevalidator = new Revalidator<>("typesByName", revalidationExecutor, meterRegistry);
+    }
+
+    private static Executor createRevalidationExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(100), r -> {
+            Thread thread = new Thread(r, "type-revalidation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     private static class SpaceResultFromKG extends KGCoreResult<Space> {}
     private static class SpacesResultFromKG extends KGCoreResult<List<Space>> {}
 
-    public List<Space> getSpaces() {
+    /**
+     * @return the request for the spaces of the current user - it has to be created in the thread of the user request
+     */
+    public Mono<List<Space>> requestSpaces() {
         String relativeUrl = "spaces?permissions=true";
-        KGCoreResult<List<Space>> response = kg.client(true).get().uri(kg.url(relativeUrl))
+        return kg.client(true).get().uri(kg.url(relativeUrl))
                 .retrieve()
                 .bodyToMono(SpacesResultFromKG.class)
-                .block();
-        return response != null ? response.getData() : null;
+                .mapNotNull(KGCoreResult::getData);
     }
 
     public Space getSpace(String space) {
@@ -78,6 +119,11 @@ public class SpaceClient {
                 .retrieve()
                 .bodyToMono(Void.class)
                 .block();
+        typeStructureCache.evict(Collections.singleton(type));
+        typeStructureCache.evictLists();
+        typeMetadataIndex.remove(type);
+        typeDependencyGraph.remove(type);
+        formSchemaCache.clear();
     }
 
     public void removeType(String space, String type) {
@@ -86,32 +132,101 @@ public class SpaceClient {
                 .retrieve()
                 .bodyToMono(Void.class)
                 .block();
+        typeStructureCache.evict(Collections.singleton(type));
+        typeStructureCache.evictLists();
+        typeMetadataIndex.remove(type);
+        typeDependencyGraph.remove(type);
+        formSchemaCache.clear();
     }
 
-    private static class StructureTypeResultFromKG extends KGCoreResult<List<StructureOfType>> {
+    private static String getSpaceTypesUrl(String space, boolean withProperties, boolean withIncomingLinks) {
+        return String.format("types?stage=IN_PROGRESS&space=%s&withProperties=%s&withIncomingLinks=%s", space, withProperties, withIncomingLinks);
     }
 
     private List<StructureOfType> getSpaceTypes(String space, boolean withProperties, boolean withIncomingLinks) {
-        String relativeUrl = String.format("types?stage=IN_PROGRESS&space=%s&withProperties=%s&withIncomingLinks=%s", space, withProperties, withIncomingLinks);
-        StructureTypeResultFromKG response = kg.client(true).get().uri(kg.url(relativeUrl))
-                .retrieve()
-                .bodyToMono(StructureTypeResultFromKG.class)
-                .block();
-        return response != null ? response.getData() : null;
+        if (!withProperties) {
+            // If we already know the full structures of the space types, there is no need to ask for them again
+            String fullStructuresUrl = getSpaceTypesUrl(space, true, true);
+            if (typeStructureCache.getList(TypeStructureCache.scopeToUser(fullStructuresUrl)) != null) {
+                List<Map<String, Object>> fullStructures = getRawTypes(fullStructuresUrl);
+                if (fullStructures != null) {
+                    return toStructuresOfType(TypeRepository.project(fullStructures, withIncomingLinks));
+                }
+            }
+        }
+        return getTypes(getSpaceTypesUrl(space, withProperties, withIncomingLinks));
     }
 
     public List<StructureOfType> getSpaceTypes(String space) {
         return getSpaceTypes(space, true, true);
     }
 
-    public List<StructureOfType> getSpaceAvailableTypes(String space) {
-        String relativeUrl = "types?stage=IN_PROGRESS&withProperties=false&withIncomingLinks=false";
-        StructureTypeResultFromKG response = kg.client(true).get().uri(kg.url(relativeUrl))
+    /**
+     * Loads the raw type catalog with the service account - this can therefore also be used outside of a user request.
+     */
+    public List<Map<String, Object>> getTypeCatalog() {
+        return fetchTypes(kg.serviceAccountClient(), TYPE_CATALOG_URL);
+    }
+
+    private List<Map<String, Object>> fetchTypes(WebClient client, String relativeUrl) {
+        return requestTypes(client, relativeUrl).block();
+    }
+
+    private Mono<List<Map<String, Object>>> requestTypes(WebClient client, String relativeUrl) {
+        return client.get().uri(kg.url(relativeUrl))
                 .retrieve()
-                .bodyToMono(StructureTypeResultFromKG.class)
-                .block();
-        if (response != null) {
-            List<StructureOfType> all = response.getData();
+                .bodyToMono(KGCoreResult.List.class)
+                .mapNotNull(KGCoreResult::getData);
+    }
+
+    /**
+     * Concurrent requests of the same user for the same type list share one call to kg-core. Since the controllers
+     * enrich the type structures in place, every caller receives its own {@link StructureOfType} instances built from
+     * the shared payload. The lists depend on the permissions of the user and are therefore cached per user. Stale lists
+     * are served immediately and revalidated in the background - with the token of the same user.
+     */
+    private List<StructureOfType> getTypes(String relativeUrl) {
+        return toStructuresOfType(getRawTypes(relativeUrl));
+    }
+
+    private List<StructureOfType> toStructuresOfType(List<Map<String, Object>> types) {
+        return types != null ? types.stream().map(typeStructureCache::toStructureOfType).collect(Collectors.toList()) : null;
+    }
+
+    private List<Map<String, Object>> getRawTypes(String relativeUrl) {
+        String cacheKey = TypeStructureCache.scopeToUser(relativeUrl);
+        TypeCacheEntry<List<Map<String, Object>>> cached = typeStructureCache.getList(cacheKey);
+        List<Map<String, Object>> types;
+        if (cached != null) {
+            types = cached.getValue();
+            if (typeStructureCache.isStale(cached)) {
+                // The request is built in the request thread to carry the token of the user - it is only sent in the background
+                Mono<List<Map<String, Object>>> refresh = requestTypes(kg.client(true), relativeUrl);
+                typesRevalidator.revalidate(Collections.singletonList(cacheKey), keys -> {
+                    List<Map<String, Object>> refreshed = refresh.block();
+                    if (refreshed != null) {
+                        typeStructureCache.putList(cacheKey, refreshed);
+                    }
+                });
+            }
+        } else {
+            types = typesFlight.execute(cacheKey, key -> {
+                List<Map<String, Object>> fetched = fetchTypes(kg.client(true), relativeUrl);
+                if (fetched != null) {
+                    typeStructureCache.putList(key, fetched);
+                }
+                return fetched;
+            });
+        }
+        return types;
+    }
+
+    /**
+     * The types are listed as the user sees them - the catalog (loaded with the service account) is therefore not used here.
+     */
+    public List<StructureOfType> getSpaceAvailableTypes(String space) {
+        List<StructureOfType> all = getTypes("types?stage=IN_PROGRESS&withProperties=false&withIncomingLinks=false");
+        if (all != null) {
             if (CollectionUtils.isEmpty(all)) {
                 return Collections.emptyList();
             }
@@ -135,27 +250,115 @@ public class SpaceClient {
     }
 
 
-    private static class StructureOfTypeByNameFromKG extends KGCoreResult<Map<String, KGCoreResult<StructureOfType>>> {
+    private static class RawStructureOfTypeByNameFromKG extends KGCoreResult<Map<String, KGCoreResult.Single>> {
     }
 
     public Map<String, KGCoreResult<StructureOfType>> getTypesByName(List<String> types, boolean withProperties) {
         String relativeUrl = String.format("typesByName?stage=IN_PROGRESS&withProperties=%s", withProperties);
-        StructureOfTypeByNameFromKG response = kg.client(true).post().uri(kg.url(relativeUrl))
-                .body(BodyInserters.fromValue(types))
-                .retrieve()
-                .bodyToMono(StructureOfTypeByNameFromKG.class)
-                .block();
-        return response != null ? response.getData() : null;
+        return getTypesByName(types, relativeUrl, withProperties, null, null);
     }
 
     public Map<String, KGCoreResult<StructureOfType>> getTypesByName(List<String> types, boolean withProperties, boolean withIncomingLinks, String space) {
         String relativeUrl = String.format("typesByName?stage=IN_PROGRESS&withProperties=%s&withIncomingLinks=%s&space=%s", withProperties, withIncomingLinks, space);
-        StructureOfTypeByNameFromKG response = kg.client(true).post().uri(kg.url(relativeUrl))
-                .body(BodyInserters.fromValue(types))
+        return getTypesByName(types, relativeUrl, withProperties, withIncomingLinks, space);
+    }
+
+    /**
+     * Serves the types from the {@link TypeRepository} and only asks kg-core for the ones which are not known yet.
+     * Types which are already requested by a concurrent call are not requested again but taken from the call in flight.
+     * Stale types are served immediately and revalidated in the background with the token of the user. The variants of a
+     * space depend on the permissions of the user and are therefore cached and coalesced per user.
+     */
+    private Map<String, KGCoreResult<StructureOfType>> getTypesByName(List<String> types, String relativeUrl, boolean withProperties, Boolean withIncomingLinks, String space) {
+        String spaceOfUser = space != null ? TypeStructureCache.scopeToUser(space) : null;
+        String requestKey = space != null ? TypeStructureCache.scopeToUser(relativeUrl) : relativeUrl;
+        Map<String, KGCoreResult<StructureOfType>> result = new HashMap<>();
+        List<TypeRequest> missingTypes = new ArrayList<>();
+        List<TypeRequest> staleTypes = new ArrayList<>();
+        types.stream().filter(Objects::nonNull).distinct().forEach(type -> {
+            TypeCacheEntry<Map<String, Object>> cached = typeRepository.get(type, withProperties, withIncomingLinks, spaceOfUser);
+            if (cached != null) {
+                if (typeRepository.isStale(cached)) {
+                    staleTypes.add(new TypeRequest(requestKey, type));
+                }
+                result.put(type, new KGCoreResult<StructureOfType>().setData(typeStructureCache.toStructureOfType(cached.getValue())));
+            } else {
+                missingTypes.add(new TypeRequest(requestKey, type));
+            }
+        });
+        if (!staleTypes.isEmpty()) {
+            // The request is built in the request thread to carry the token of the user - it is only sent in the background
+            Mono<RawStructureOfTypeByNameFromKG> refresh = requestTypesByName(kg.client(true), relativeUrl, staleTypes);
+            typesByNameRevalidator.revalidate(staleTypes, requests -> storeTypesByName(refresh.block(), requestKey, withProperties, withIncomingLinks, spaceOfUser));
+        }
+        if (!missingTypes.isEmpty()) {
+            Map<TypeRequest, KGCoreResult.Single> fetched = typesByNameFlight.executeAll(missingTypes, requests -> storeTypesByName(requestTypesByName(kg.client(true), relativeUrl, requests).block(), requestKey, withProperties, withIncomingLinks, spaceOfUser));
+            fetched.forEach((request, typeResult) -> {
+                if (typeResult.getData() != null) {
+                    result.put(request.getType(), new KGCoreResult<StructureOfType>().setData(typeStructureCache.toStructureOfType(typeResult.getData())));
+                } else {
+                    result.put(request.getType(), new KGCoreResult<StructureOfType>().setError(typeResult.getError()));
+                }
+            });
+        }
+        return result;
+    }
+
+    private Mono<RawStructureOfTypeByNameFromKG> requestTypesByName(WebClient client, String relativeUrl, List<TypeRequest> requests) {
+        List<String> typeNames = requests.stream().map(TypeRequest::getType).toList();
+        return client.post().uri(kg.url(relativeUrl))
+                .body(BodyInserters.fromValue(typeNames))
                 .retrieve()
-                .bodyToMono(StructureOfTypeByNameFromKG.class)
-                .block();
-        return response != null ? response.getData() : null;
+                .bodyToMono(RawStructureOfTypeByNameFromKG.class);
+    }
+
+    /**
+     * @param space the space the types have been requested for - scoped to the user
+     */
+    private Map<TypeRequest, KGCoreResult.Single> storeTypesByName(RawStructureOfTypeByNameFromKG response, String requestKey, boolean withProperties, Boolean withIncomingLinks, String space) {
+        Map<TypeRequest, KGCoreResult.Single> byRequest = new HashMap<>();
+        if (response != null && response.getData() != null) {
+            response.getData().forEach((type, typeResult) -> {
+                if (typeResult.getData() != null) {
+                    if (typeStructureCache.put(type, withProperties, withIncomingLinks, space, typeResult.getData())) {
+                        // The type has changed since we've built the form schemas
+                        formSchemaCache.clear();
+                    }
+                }
+                byRequest.put(new TypeRequest(requestKey, type), typeResult);
+            });
+        }
+        return byRequest;
+    }
+
+    private static class TypeRequest {
+        private final String requestKey;
+        private final String type;
+
+        /**
+         * @param requestKey the relative url the type is requested with (scoped to the user if the result depends on its permissions)
+         */
+        private TypeRequest(String requestKey, String type) {
+            this.requestKey = requestKey;
+            this.type = type;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            TypeRequest that = (TypeRequest) o;
+            return requestKey.equals(that.requestKey) && type.equals(that.type);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(requestKey, type);
+        }
     }
 
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.services;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The in-memory copy of all types (including their properties and incoming links) as provided by kg-core. It is
+ * refreshed in the background by the {@link TypeCatalogWarmer} and replaced as a whole.
+ */
+@Component
+public class TypeCatalog {
+
+    private volatile Map<String, Map<String, Object>> typesByName = Collections.emptyMap();
+    private volatile String version;
+
+    public boolean isLoaded() {
+        return !typesByName.isEmpty();
+    }
+
+    /**
+     * @return a fingerprint of the content of the catalog (null as long as it hasn't been loaded). Since it only depends
+     * on the content, all instances of the service report the same version for the same catalog.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    public Map<String, Map<String, Object>> getTypesByName() {
+        return typesByName;
+    }
+
+    /**
+     * The catalog contains the types with properties and incoming links for all spaces -> it can only serve the
+     * lookups for this variant.
+     */
+    public Map<String, Object> get(String type, boolean withProperties, Boolean withIncomingLinks, String space) {
+        if (withProperties && !Boolean.FALSE.equals(withIncomingLinks) && space == null) {
+            return typesByName.get(type);
+        }
+        return null;
+    }
+
+    void replace(Map<String, Map<String, Object>> typesByName, String version) {
+        this.typesByName = Collections.unmodifiableMap(typesByName);
+        this.version = version;
+    }
+}
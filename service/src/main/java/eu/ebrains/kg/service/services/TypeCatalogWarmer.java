@@ -0,0 +1,146 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import eu.ebrains.kg.service.constants.SchemaFieldsConstants;
+import eu.ebrains.kg.service.helpers.Helpers;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Periodically loads the full type catalog with the service account so request threads can be served from memory.
+ */
+@Component
+public class TypeCatalogWarmer {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final SpaceClient spaceClient;
+    private final TypeCatalog typeCatalog;
+    private final TypeStructureCache typeStructureCache;
+    private final TypeDependencyGraph typeDependencyGraph;
+    private final FormSchemaCache formSchemaCache;
+    private final TypeMetadataIndex typeMetadataIndex;
+    private final ObjectMapper objectMapper;
+    private final long jitter;
+    private final AtomicLong lastRefreshDuration = new AtomicLong();
+    private final AtomicLong lastRefresh = new AtomicLong();
+    private final Counter changedTypes;
+    private final Counter failedRefreshes;
+
+    public TypeCatalogWarmer(SpaceClient spaceClient, TypeCatalog typeCatalog, TypeStructureCache typeStructureCache, TypeDependencyGraph typeDependencyGraph, FormSchemaCache formSchemaCache, TypeMetadataIndex typeMetadataIndex, ObjectMapper jacksonObjectMapper, MeterRegistry meterRegistry,
+                             @Value("${kg.types.catalog.refreshInterval}") long refreshInterval, @Value("${kg.types.catalog.jitter}") long jitter) {
+        this.spaceClient = spaceClient;
+        this.typeCatalog = typeCatalog;
+        this.typeStructureCache = typeStructureCache;
+        this.typeDependencyGraph = typeDependencyGraph;
+        this.formSchemaCache = formSchemaCache;
+        this.typeMetadataIndex = typeMetadataIndex;
+        this.objectMapper = jacksonObjectMapper;
+        this.jitter = jitter;
+        Gauge.builder("kg.editor.types.catalog.refresh.interval", () -> refreshInterval).baseUnit("milliseconds").register(meterRegistry);
+        Gauge.builder("kg.editor.types.catalog.refresh.jitter", () -> jitter).baseUnit("milliseconds").register(meterRegistry);
+        Gauge.builder("kg.editor.types.catalog.refresh.lastDuration", lastRefreshDuration::get).baseUnit("milliseconds").register(meterRegistry);
+        Gauge.builder("kg.editor.types.catalog.refresh.last", lastRefresh::get).description("Timestamp of the last successful refresh").register(meterRegistry);
+        Gauge.builder("kg.editor.types.catalog.size", typeCatalog, c -> c.getTypesByName().size()).register(meterRegistry);
+        this.changedTypes = Counter.builder("kg.editor.types.catalog.changed").description("Number of types which have changed between two refreshes").register(meterRegistry);
+        this.failedRefreshes = Counter.builder("kg.editor.types.catalog.failed").register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${kg.types.catalog.initialDelay}", fixedDelayString = "${kg.types.catalog.refreshInterval}")
+    public void refresh() {
+        if (jitter > 0) {
+            try {
+                // We don't want all instances of the service to hit kg-core at the same time
+                Thread.sleep(ThreadLocalRandom.current().nextLong(jitter));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        long start = System.currentTimeMillis();
+        try {
+            List<Map<String, Object>> types = spaceClient.getTypeCatalog();
+            if (types != null) {
+                Map<String, Map<String, Object>> typesByName = new HashMap<>();
+                types.forEach(t -> {
+                    Object name = t.get(SchemaFieldsConstants.IDENTIFIER);
+                    if (name != null) {
+                        typesByName.put(name.toString(), t);
+                    }
+                });
+                update(typesByName);
+                lastRefresh.set(System.currentTimeMillis());
+            }
+        } catch (RuntimeException e) {
+            failedRefreshes.increment();
+            logger.warn("Was not able to refresh the type catalog - we keep the previous version", e);
+        } finally {
+            lastRefreshDuration.set(System.currentTimeMillis() - start);
+        }
+    }
+
+    private void update(Map<String, Map<String, Object>> typesByName) {
+        Map<String, Map<String, Object>> previous = typeCatalog.getTypesByName();
+        Set<String> changed = new HashSet<>();
+        typesByName.forEach((name, type) -> {
+            if (!type.equals(previous.get(name))) {
+                changed.add(name);
+            }
+        });
+        previous.keySet().stream().filter(name -> !typesByName.containsKey(name)).forEach(changed::add);
+        String version = changed.isEmpty() && typeCatalog.getVersion() != null ? typeCatalog.getVersion() : fingerprint(typesByName);
+        typeCatalog.replace(typesByName, version);
+        if (!changed.isEmpty() || !typeDependencyGraph.isInitialized()) {
+            logger.info("The type catalog has been refreshed - {} types have changed", changed.size());
+            changedTypes.increment(changed.size());
+            typeStructureCache.evict(changed);
+            typeStructureCache.evictLists();
+            formSchemaCache.clear();
+            typeMetadataIndex.replace(typesByName.values());
+            typeDependencyGraph.initialize(typesByName.values().stream().map(typeStructureCache::toStructureOfType).toList());
+        }
+    }
+
+    private String fingerprint(Map<String, Map<String, Object>> typesByName) {
+        try {
+            return Helpers.fingerprint(objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS).writeValueAsBytes(typesByName));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.services;
+
+import eu.ebrains.kg.service.helpers.Helpers;
+import eu.ebrains.kg.service.models.type.StructureOfType;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * The dependencies between types (nested types and source types of incoming links) which allow to resolve the full set
+ * of types required for a given set of types without asking kg-core level by level. It is built from the type catalog
+ * loaded with the service account by the {@link TypeCatalogWarmer} - types it doesn't know are resolved level by level.
+ */
+@Component
+public class TypeDependencyGraph {
+
+    public enum Edge {
+        NESTED, INCOMING_LINK_SOURCE
+    }
+
+    private volatile ConcurrentMap<String, Map<Edge, Set<String>>> edgesByType = new ConcurrentHashMap<>();
+    private volatile boolean initialized;
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    /**
+     * Replaces the whole graph by the one built from the given types (which need to contain their properties and incoming links).
+     */
+    public void initialize(Collection<StructureOfType> types) {
+        ConcurrentMap<String, Map<Edge, Set<String>>> edges = new ConcurrentHashMap<>();
+        types.stream().filter(t -> t.getName() != null).forEach(t -> edges.put(t.getName(), edgesOf(t)));
+        this.edgesByType = edges;
+        this.initialized = true;
+    }
+
+    public void remove(String type) {
+        edgesByType.remove(type);
+    }
+
+    public Set<String> getRelatedTypes(String type, Edge edge) {
+        Map<Edge, Set<String>> edges = edgesByType.get(type);
+        return edges != null ? edges.get(edge) : Collections.emptySet();
+    }
+
+    /**
+     * @return the given types and all types reachable from them by following the given edges. Types which are not known
+     * by the graph are part of the result, but their dependencies are not.
+     */
+    public Set<String> getClosure(Collection<String> types, Edge... edges) {
+        Set<String> closure = new LinkedHashSet<>();
+        Deque<String> toVisit = new ArrayDeque<>(types);
+        while (!toVisit.isEmpty()) {
+            String type = toVisit.poll();
+            if (type != null && closure.add(type)) {
+                for (Edge edge : edges) {
+                    toVisit.addAll(getRelatedTypes(type, edge));
+                }
+            }
+        }
+        return closure;
+    }
+
+    private static Map<Edge, Set<String>> edgesOf(StructureOfType type) {
+        Map<Edge, Set<String>> edges = new EnumMap<>(Edge.class);
+        edges.put(Edge.NESTED, type.getFields().values().stream()
+                .filter(Helpers::isNestedField)
+                .flatMap(f -> f.getTargetTypesNames().stream())
+                .collect(Collectors.toUnmodifiableSet()));
+        edges.put(Edge.INCOMING_LINK_SOURCE, type.getIncomingLinks().values().stream()
+                .filter(Objects::nonNull)
+                .filter(l -> l.getSourceTypes() != null)
+                .flatMap(l -> l.getSourceTypes().stream())
+                .map(s -> s.getType().getName())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toUnmodifiableSet()));
+        return edges;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.services;
+
+import eu.ebrains.kg.service.constants.EditorConstants;
+import eu.ebrains.kg.service.constants.SchemaFieldsConstants;
+import eu.ebrains.kg.service.models.type.SimpleType;
+import eu.ebrains.kg.service.models.type.StructureOfType;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A compact index of the metadata (label, color, description and label field) of all types. It is loaded in bulk
+ * from the type catalog and allows to enrich {@link SimpleType}s without having to look up the full type structures.
+ * The entries are never handed out but only copied to the types to enrich. Entries added for types which are not
+ * part of the catalog expire after the soft TTL of the type structures ("kg.types.cache.softTtl").
+ */
+@Component
+public class TypeMetadataIndex {
+
+    private volatile Map<String, Entry> metadataByName = new ConcurrentHashMap<>();
+    private final long ttl;
+
+    public TypeMetadataIndex(MeterRegistry meterRegistry, @Value("${kg.types.cache.softTtl}") long ttl) {
+        this.ttl = ttl;
+        Gauge.builder("kg.editor.types.metadata.size", this, i -> i.metadataByName.size()).register(meterRegistry);
+    }
+
+    private record Entry(SimpleType metadata, long expiresAt) {}
+
+    private SimpleType get(String type) {
+        Entry entry = metadataByName.get(type);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() < System.currentTimeMillis()) {
+            metadataByName.remove(type, entry);
+            return null;
+        }
+        return entry.metadata();
+    }
+
+    public boolean contains(String type) {
+        return get(type) != null;
+    }
+
+    /**
+     * @return true if the metadata of the given type is known
+     */
+    public boolean enrich(SimpleType type) {
+        SimpleType metadata = type.getName() != null ? get(type.getName()) : null;
+        if (metadata == null) {
+            return false;
+        }
+        type.setLabel(metadata.getLabel());
+        type.setColor(metadata.getColor());
+        type.setDescription(metadata.getDescription());
+        type.setLabelField(metadata.getLabelField());
+        return true;
+    }
+
+    public void put(StructureOfType structureOfType) {
+        if (structureOfType != null && structureOfType.getName() != null) {
+            metadataByName.put(structureOfType.getName(), new Entry(createMetadata(structureOfType.getName(), structureOfType.getLabel(), structureOfType.getColor(), structureOfType.getDescription(), structureOfType.getLabelField()), System.currentTimeMillis() + ttl));
+        }
+    }
+
+    /**
+     * Removes the metadata of the given type - it is looked up again on its next use.
+     */
+    public void remove(String type) {
+        metadataByName.remove(type);
+    }
+
+    /**
+     * Replaces the whole index by the metadata of the given raw type structures (as provided by kg-core)
+     */
+    void replace(Collection<Map<String, Object>> rawTypes) {
+        Map<String, Entry> index = new ConcurrentHashMap<>();
+        rawTypes.forEach(t -> {
+            Object name = t.get(SchemaFieldsConstants.IDENTIFIER);
+            if (name != null) {
+                // The catalog is refreshed in the background -> its entries don't expire
+                index.put(name.toString(), new Entry(createMetadata(name.toString(), asString(t.get(SchemaFieldsConstants.NAME)), asString(t.get(EditorConstants.VOCAB_COLOR)), asString(t.get(SchemaFieldsConstants.DESCRIPTION)), asString(t.get(EditorConstants.VOCAB_LABEL_PROPERTY))), Long.MAX_VALUE));
+            }
+        });
+        this.metadataByName = index;
+    }
+
+    private static String asString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static SimpleType createMetadata(String name, String label, String color, String description, String labelField) {
+        SimpleType metadata = new SimpleType(name);
+        metadata.setLabel(label);
+        metadata.setColor(color);
+        metadata.setDescription(description);
+        metadata.setLabelField(labelField);
+        return metadata;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.services;
+
+import eu.ebrains.kg.service.constants.EditorConstants;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Looks up the raw type structures in the {@link TypeCatalog} and the {@link TypeStructureCache}. A lookup without
+ * properties doesn't need kg-core if the full structure of the type is known already - the lightweight projection
+ * (name, label, color, description, label field, ...) is derived from it in memory.
+ */
+@Component
+public class TypeRepository {
+
+    private final TypeCatalog typeCatalog;
+    private final TypeStructureCache typeStructureCache;
+    private final Counter projections;
+
+    public TypeRepository(TypeCatalog typeCatalog, TypeStructureCache typeStructureCache, MeterRegistry meterRegistry) {
+        this.typeCatalog = typeCatalog;
+        this.typeStructureCache = typeStructureCache;
+        this.projections = Counter.builder("kg.editor.types.projections")
+                .description("Number of type lookups without properties which have been derived from a full type structure")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the raw structure of the type for the given variant or null if it's not known yet.
+     */
+    public TypeCacheEntry<Map<String, Object>> get(String type, boolean withProperties, Boolean withIncomingLinks, String space) {
+        TypeCacheEntry<Map<String, Object>> entry = getExact(type, withProperties, withIncomingLinks, space);
+        if (entry == null && !withProperties) {
+            TypeCacheEntry<Map<String, Object>> full = getFull(type, withIncomingLinks, space);
+            if (full != null) {
+                projections.increment();
+                entry = new TypeCacheEntry<>(project(full.getValue(), withIncomingLinks), full.getFetchedAt());
+            }
+        }
+        return entry;
+    }
+
+    private TypeCacheEntry<Map<String, Object>> getExact(String type, boolean withProperties, Boolean withIncomingLinks, String space) {
+        Map<String, Object> fromCatalog = typeCatalog.get(type, withProperties, withIncomingLinks, space);
+        if (fromCatalog != null) {
+            // The catalog is kept up to date in the background -> its entries are never stale
+            return new TypeCacheEntry<>(fromCatalog, System.currentTimeMillis());
+        }
+        return typeStructureCache.get(type, withProperties, withIncomingLinks, space);
+    }
+
+    private TypeCacheEntry<Map<String, Object>> getFull(String type, Boolean withIncomingLinks, String space) {
+        TypeCacheEntry<Map<String, Object>> full = getExact(type, true, true, space);
+        if (full == null && !Boolean.TRUE.equals(withIncomingLinks)) {
+            full = getExact(type, true, null, space);
+        }
+        return full;
+    }
+
+    public boolean isStale(TypeCacheEntry<?> entry) {
+        return typeStructureCache.isStale(entry);
+    }
+
+    /**
+     * Reduces a full type structure to the information kg-core provides when asked without properties.
+     */
+    public static Map<String, Object> project(Map<String, Object> fullStructure, Boolean withIncomingLinks) {
+        Map<String, Object> projection = new HashMap<>(fullStructure);
+        projection.remove(EditorConstants.VOCAB_PROPERTIES);
+        if (!Boolean.TRUE.equals(withIncomingLinks)) {
+            projection.remove(EditorConstants.VOCAB_INCOMING_LINKS);
+        }
+        return projection;
+    }
+
+    public static List<Map<String, Object>> project(List<Map<String, Object>> fullStructures, Boolean withIncomingLinks) {
+        return fullStructures.stream().map(t -> project(t, withIncomingLinks)).toList();
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.ebrains.kg.service.helpers.Helpers;
+import eu.ebrains.kg.service.models.type.StructureOfType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Keeps the type structures received from kg-core by type name and by the variant (withProperties / withIncomingLinks / space)
+ * they have been requested with. Whatever depends on the permissions of the user (the type lists and the space variants)
+ * has to be stored with a key scoped to the user (see {@link #scopeToUser(String)}). We keep the raw payload and create a new {@link StructureOfType} for every lookup, since
+ * the controllers enrich the type structures in place.
+ * <p>
+ * Entries older than the soft TTL ("kg.types.cache.softTtl") are still served but should be revalidated by the caller.
+ * The hard TTL is the expiry of the "typeStructures" cache (see ehcache.xml) - only after it, a lookup has to wait for kg-core.
+ */
+@Component
+public class TypeStructureCache {
+
+    private static final String CACHE_NAME = "typeStructures";
+
+    private final Cache cache;
+    private final ObjectMapper objectMapper;
+    private final long softTtl;
+    private final AtomicLong generation = new AtomicLong();
+
+    public TypeStructureCache(CacheManager cacheManager, ObjectMapper jacksonObjectMapper, @Value("${kg.types.cache.softTtl}") long softTtl) {
+        this.cache = cacheManager.getCache(CACHE_NAME);
+        this.objectMapper = jacksonObjectMapper;
+        this.softTtl = softTtl;
+    }
+
+    private static String key(String type, boolean withProperties, Boolean withIncomingLinks, String space) {
+        return String.format("%s|%b|%s|%s", type, withProperties, withIncomingLinks, space);
+    }
+
+    /**
+     * @return the given key prefixed with the fingerprint of the authorization of the current user request
+     */
+    public static String scopeToUser(String key) {
+        String authorization = Helpers.getAuthorization();
+        return String.format("%s|%s", authorization != null ? Helpers.fingerprint(authorization.getBytes(StandardCharsets.UTF_8)) : "anonymous", key);
+    }
+
+    private static String listKey(String relativeUrl) {
+        return String.format("list|%s", relativeUrl);
+    }
+
+    @SuppressWarnings("unchecked")
+    public TypeCacheEntry<Map<String, Object>> get(String type, boolean withProperties, Boolean withIncomingLinks, String space) {
+        return cache.get(key(type, withProperties, withIncomingLinks, space), TypeCacheEntry.class);
+    }
+
+    /**
+     * @return true if the structure replaces a different version of the same type
+     */
+    public boolean put(String type, boolean withProperties, Boolean withIncomingLinks, String space, Map<String, Object> structure) {
+        TypeCacheEntry<Map<String, Object>> previous = get(type, withProperties, withIncomingLinks, space);
+        cache.put(key(type, withProperties, withIncomingLinks, space), new TypeCacheEntry<>(structure, System.currentTimeMillis()));
+        if (previous == null || !previous.getValue().equals(structure)) {
+            generation.incrementAndGet();
+        }
+        return previous != null && !previous.getValue().equals(structure);
+    }
+
+    /**
+     * @param relativeUrl the relative url the list has been requested with - scoped to the user
+     * @return the type list kg-core has returned for the given relative url
+     */
+    @SuppressWarnings("unchecked")
+    public TypeCacheEntry<List<Map<String, Object>>> getList(String relativeUrl) {
+        return cache.get(listKey(relativeUrl), TypeCacheEntry.class);
+    }
+
+    public void putList(String relativeUrl, List<Map<String, Object>> types) {
+        TypeCacheEntry<List<Map<String, Object>>> previous = getList(relativeUrl);
+        cache.put(listKey(relativeUrl), new TypeCacheEntry<>(types, System.currentTimeMillis()));
+        if (previous == null || !previous.getValue().equals(types)) {
+            generation.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return a number which changes whenever the content of this cache might have changed - results derived from the
+     * type structures can be reused as long as it stays the same.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public boolean isStale(TypeCacheEntry<?> entry) {
+        return System.currentTimeMillis() - entry.getFetchedAt() > softTtl;
+    }
+
+    public StructureOfType toStructureOfType(Map<String, Object> structure) {
+        return objectMapper.convertValue(structure, StructureOfType.class);
+    }
+
+    /**
+     * Removes all variants of the given types (for all spaces and users) - they could be affected by a change of their
+     * type assignment.
+     */
+    public void evict(Collection<String> types) {
+        generation.incrementAndGet();
+        evictMatching(key -> types.contains(key.substring(0, Math.max(0, key.indexOf('|')))));
+    }
+
+    /**
+     * Removes all type lists - a changed type can be part of any of them.
+     */
+    public void evictLists() {
+        generation.incrementAndGet();
+        evictMatching(key -> key.startsWith("list|"));
+    }
+
+    private void evictMatching(Predicate<String> keyFilter) {
+        if (cache.getNativeCache() instanceof javax.cache.Cache<?, ?> nativeCache) {
+            List<String> keys = new ArrayList<>();
+            nativeCache.forEach(entry -> {
+                if (entry.getKey() instanceof String key && keyFilter.test(key)) {
+                    keys.add(key);
+                }
+            });
+            keys.forEach(cache::evict);
+        }
+    }
+}
@@ -33,6 +33,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
@@ -55,13 +56,15 @@ public class UserClient {
     private static class UserFromKG extends KGCoreResult<UserProfile> {
     }
 
-    public UserProfile getUserProfile() {
+    /**
+     * @return the request for the profile of the current user - it has to be created in the thread of the user request
+     */
+    public Mono<UserProfile> requestUserProfile() {
         String relativeUrl = "users/me";
-        UserFromKG response = kg.client(true).get().uri(kg.url(relativeUrl))
+        return kg.client(true).get().uri(kg.url(relativeUrl))
                 .retrieve()
                 .bodyToMono(UserFromKG.class)
-                .block();
-        return response != null ? response.getData() : null;
+                .mapNotNull(KGCoreResult::getData);
     }
 
     public static class UserRepresentation {
@@ -82,20 +85,24 @@ public class UserClient {
         }
     }
 
-    public List<UserSummary> getUsers(String search) {
-        final List<UserRepresentation> result = this.kg.client(false).get().uri(String.format(this.searchEndpoint, URLEncoder.encode(search, StandardCharsets.UTF_8))).retrieve().bodyToMono(new ParameterizedTypeReference<List<UserRepresentation>>() {
-        }).block();
-        return result == null ? null : result.stream().map(this::fromUserRepresentation).toList();
-
+    /**
+     * @return the request searching for users - it has to be created in the thread of the user request
+     */
+    public Mono<List<UserSummary>> requestUsers(String search) {
+        return this.kg.client(false).get().uri(String.format(this.searchEndpoint, URLEncoder.encode(search, StandardCharsets.UTF_8))).retrieve().bodyToMono(new ParameterizedTypeReference<List<UserRepresentation>>() {
+        }).map(result -> result.stream().map(this::fromUserRepresentation).toList());
     }
 
     private UserSummary fromUserRepresentation(UserRepresentation userRepresentation) {
         return new UserSummary(userRepresentation.id, userRepresentation.username, userRepresentation.firstName + " " + userRepresentation.lastName);
     }
 
-    public UserSummary getUserById(String userId) {
-        final UserRepresentation user = this.kg.client(false).get().uri(String.format(this.detailEndpoint, URLEncoder.encode(userId, StandardCharsets.UTF_8))).retrieve().bodyToMono(UserRepresentation.class).block();
-        return user!=null ? fromUserRepresentation(user) : null;
+    /**
+     * @return the request for the user - if it is not created in the thread of the user request, the user token has to
+     * be provided by the reactor context
+     */
+    public Mono<UserSummary> requestUserById(String userId) {
+        return this.kg.client(false).get().uri(String.format(this.detailEndpoint, URLEncoder.encode(userId, StandardCharsets.UTF_8))).retrieve().bodyToMono(UserRepresentation.class).map(this::fromUserRepresentation);
     }
 
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+package eu.ebrains.kg.service.api;
+
+import eu.ebrains.kg.service.helpers.Revalidator;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaleResponseAdviceTest {
+
+    private final StaleResponseAdvice advice = new StaleResponseAdvice();
+
+    @Test
+    void warningHeaderIsSetForStaleRequests() {
+        //given
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(Revalidator.STALE_ATTRIBUTE, Boolean.TRUE);
+        ServletServerHttpResponse response = new ServletServerHttpResponse(new MockHttpServletResponse());
+
+        //when
+        Object body = advice.beforeBodyWrite("body", null, MediaType.APPLICATION_JSON, null, new ServletServerHttpRequest(request), response);
+
+        //then
+        assertEquals("body", body);
+        assertEquals(Revalidator.STALE_WARNING, response.getHeaders().getFirst(HttpHeaders.WARNING));
+    }
+
+    @Test
+    void noWarningHeaderIsSetForFreshRequests() {
+        //given
+        ServletServerHttpResponse response = new ServletServerHttpResponse(new MockHttpServletResponse());
+
+        //when
+        advice.beforeBodyWrite("body", null, MediaType.APPLICATION_JSON, null, new ServletServerHttpRequest(new MockHttpServletRequest()), response);
+
+        //then
+        assertFalse(response.getHeaders().containsKey(HttpHeaders.WARNING));
+    }
+}
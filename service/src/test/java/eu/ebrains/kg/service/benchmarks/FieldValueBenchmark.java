@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.benchmarks;
+
+import eu.ebrains.kg.service.models.instance.FieldValue;
+import eu.ebrains.kg.service.models.type.StructureOfField;
+import eu.ebrains.kg.service.models.type.ValidationRule;
+import org.apache.commons.lang3.SerializationUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the deep copy of the field structures (which was done for every field of every instance) with the
+ * binding of the values to the shared field structures. Run the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FieldValueBenchmark {
+
+    @Param({"10", "50", "100"})
+    private int numberOfFields;
+
+    private List<StructureOfField> fields;
+    private Map<String, Object> instance;
+
+    @Setup
+    public void setup() {
+        fields = new ArrayList<>();
+        instance = new HashMap<>();
+        for (int i = 0; i < numberOfFields; i++) {
+            String fullyQualifiedName = String.format("https://openminds.ebrains.eu/vocab/property%d", i);
+            List<Map<String, Object>> targetTypes = i % 3 == 0 ? Collections.singletonList(Map.of("https://core.kg.ebrains.eu/vocab/meta/type", "https://openminds.ebrains.eu/core/Person")) : null;
+            fields.add(new StructureOfField(fullyQualifiedName, 10, i, String.format("property%d", i), targetTypes != null ? "DynamicDropdown" : "InputText",
+                    null, 255, null, null, null, null, "A tooltip", i % 5 == 0, i % 7 == 0, false, false,
+                    targetTypes, null, Collections.singletonList(new ValidationRule("^.*$", "Invalid value")), null));
+            instance.put(fullyQualifiedName, targetTypes != null ? Map.of("@id", UUID.randomUUID().toString()) : String.format("value %d", i));
+        }
+    }
+
+    @Benchmark
+    public Map<String, StructureOfField> deepCopyOfStructures() {
+        Map<String, StructureOfField> result = new HashMap<>();
+        fields.forEach(f -> result.put(f.getFullyQualifiedName(), SerializationUtils.clone(f)));
+        return result;
+    }
+
+    @Benchmark
+    public Map<String, FieldValue> sharedStructures() {
+        Map<String, FieldValue> result = new HashMap<>();
+        fields.forEach(f -> result.put(f.getFullyQualifiedName(), new FieldValue(f, instance.get(f.getFullyQualifiedName()))));
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FieldValueBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.helpers;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private AdaptiveConcurrencyLimiter limiter(int initialLimit, int maxQueueSize, Duration maxWait) {
+        return new AdaptiveConcurrencyLimiter("test", initialLimit, 1, 10, 0.5, Duration.ofSeconds(10), maxQueueSize, maxWait, meterRegistry);
+    }
+
+    private static Mono<String> limit(AdaptiveConcurrencyLimiter limiter, Mono<String> call) {
+        return limiter.limit(() -> call, r -> false, e -> false);
+    }
+
+    @Test
+    void permitIsHandedOverToTheNextWaitingCall() {
+        //given
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, Duration.ofSeconds(5));
+        Sinks.One<String> first = Sinks.one();
+        Sinks.One<String> second = Sinks.one();
+        AtomicBoolean secondStarted = new AtomicBoolean();
+        limit(limiter, first.asMono()).subscribe();
+        limit(limiter, second.asMono().doOnSubscribe(s -> secondStarted.set(true))).subscribe();
+        assertFalse(secondStarted.get());
+        assertEquals(1, limiter.getQueueSize());
+
+        //when
+        first.tryEmitValue("first");
+
+        //then
+        assertTrue(secondStarted.get());
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(0, limiter.getQueueSize());
+        second.tryEmitValue("second");
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void callIsRejectedIfTheQueueIsFull() {
+        //given
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 0, Duration.ofSeconds(5));
+        limit(limiter, Mono.never()).subscribe();
+
+        //when
+        Mono<String> rejected = limit(limiter, Mono.just("rejected"));
+
+        //then
+        assertThrows(AdaptiveConcurrencyLimiter.LimitExceededException.class, () -> rejected.block(Duration.ofSeconds(5)));
+        assertEquals(1, meterRegistry.get("kg.editor.kgcore.concurrency.rejected").counter().count(), 0);
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    @Test
+    void waitingCallIsRejectedAfterTheMaximalWait() {
+        //given
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, Duration.ofMillis(100));
+        Sinks.One<String> first = Sinks.one();
+        AtomicBoolean secondStarted = new AtomicBoolean();
+        limit(limiter, first.asMono()).subscribe();
+
+        //when
+        Mono<String> second = limit(limiter, Mono.just("second").doOnSubscribe(s -> secondStarted.set(true)));
+
+        //then
+        assertThrows(AdaptiveConcurrencyLimiter.LimitExceededException.class, () -> second.block(Duration.ofSeconds(5)));
+        assertFalse(secondStarted.get());
+        assertEquals(0, limiter.getQueueSize());
+        first.tryEmitValue("first");
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void permitReleasedWhileACallIsBeingQueuedIsHandedOver() throws Exception {
+        //given
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, Duration.ofSeconds(1));
+        Sinks.One<String> first = Sinks.one();
+        limit(limiter, first.asMono()).subscribe();
+        // The first call completes in another thread right when the second one checks whether it has to be queued
+        AtomicReference<Thread> release = new AtomicReference<>();
+        replaceQueue(limiter, new ArrayDeque<>() {
+            @Override
+            public int size() {
+                if (release.get() == null) {
+                    Thread thread = new Thread(() -> first.tryEmitValue("first"));
+                    release.set(thread);
+                    thread.start();
+                    // Waits until the release is blocked by the check - it lands as soon as the limiter is unlocked
+                    while (thread.getState() != Thread.State.BLOCKED && thread.isAlive()) {
+                        Thread.onSpinWait();
+                    }
+                }
+                return super.size();
+            }
+        });
+
+        //when
+        String second = limit(limiter, Mono.just("second")).block(Duration.ofSeconds(5));
+
+        //then
+        assertEquals("second", second);
+        release.get().join();
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(0, meterRegistry.get("kg.editor.kgcore.concurrency.rejected").counter().count(), 0);
+    }
+
+    @Test
+    void queueDoesNotGrowBeyondItsBound() throws Exception {
+        //given
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 2, Duration.ofSeconds(5));
+        Sinks.One<String> first = Sinks.one();
+        limit(limiter, first.asMono()).subscribe();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> callers = new ArrayList<>();
+
+        //when
+        for (int i = 0; i < 8; i++) {
+            callers.add(executor.submit(() -> {
+                start.await();
+                return limit(limiter, Mono.never()).subscribe();
+            }));
+        }
+        start.countDown();
+        for (Future<?> caller : callers) {
+            caller.get(5, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        //then
+        assertEquals(2, limiter.getQueueSize());
+        assertEquals(6, meterRegistry.get("kg.editor.kgcore.concurrency.rejected").counter().count(), 0);
+    }
+
+    @Test
+    void cancelledWaitingCallLeavesTheQueue() {
+        //given
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, Duration.ofSeconds(5));
+        Sinks.One<String> first = Sinks.one();
+        AtomicBoolean secondStarted = new AtomicBoolean();
+        limit(limiter, first.asMono()).subscribe();
+        Disposable second = limit(limiter, Mono.just("second").doOnSubscribe(s -> secondStarted.set(true))).subscribe();
+
+        //when
+        second.dispose();
+
+        //then
+        assertEquals(0, limiter.getQueueSize());
+        first.tryEmitValue("first");
+        assertFalse(secondStarted.get());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void cancelledCallReleasesTheHandedOverPermit() {
+        //given
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, Duration.ofSeconds(5));
+        Sinks.One<String> first = Sinks.one();
+        limit(limiter, first.asMono()).subscribe();
+        Disposable second = limit(limiter, Mono.never()).subscribe();
+        first.tryEmitValue("first");
+        assertEquals(1, limiter.getInFlight());
+
+        //when
+        second.dispose();
+
+        //then
+        assertEquals(0, limiter.getInFlight());
+        assertEquals("third", limit(limiter, Mono.just("third")).block(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void permitIsHeldUntilTheResultHasBeenProcessed() {
+        //given
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 0, Duration.ofSeconds(5));
+        AtomicReference<Consumer<Throwable>> release = new AtomicReference<>();
+        String result = limiter.limit(() -> Mono.just("result"), r -> false, e -> false, (r, action) -> {
+            release.set(action);
+            return r;
+        }).block(Duration.ofSeconds(5));
+        assertEquals("result", result);
+        assertEquals(1, limiter.getInFlight());
+
+        //when
+        release.get().accept(null);
+        release.get().accept(null);
+
+        //then
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void overloadResponseLowersTheLimit() {
+        //given
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 0, Duration.ofSeconds(5));
+
+        //when
+        limiter.limit(() -> Mono.just("overloaded"), "overloaded"::equals, e -> false).block(Duration.ofSeconds(5));
+
+        //then
+        assertEquals(2, limiter.getLimit(), 0.001);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void overloadErrorLowersTheLimit() {
+        //given
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 0, Duration.ofSeconds(5));
+        Mono<String> call = limiter.limit(() -> Mono.error(new TimeoutException()), r -> false, TimeoutException.class::isInstance);
+
+        //when
+        assertThrows(RuntimeException.class, () -> call.block(Duration.ofSeconds(5)));
+
+        //then
+        assertEquals(2, limiter.getLimit(), 0.001);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    private static void replaceQueue(AdaptiveConcurrencyLimiter limiter, Deque<?> queue) throws ReflectiveOperationException {
+        Field field = AdaptiveConcurrencyLimiter.class.getDeclaredField("queue");
+        field.setAccessible(true);
+        field.set(limiter, queue);
+    }
+}
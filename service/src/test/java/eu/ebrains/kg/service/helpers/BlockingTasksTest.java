@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+package eu.ebrains.kg.service.helpers;
+
+import eu.ebrains.kg.service.configuration.OauthClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockingTasksTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final BlockingTasks blockingTasks = new BlockingTasks(executor);
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void taskIsRunOffTheRequestThreadWithTheRequestBound() {
+        //given
+        bindRequest("Bearer user");
+        Thread requestThread = Thread.currentThread();
+        Mono<String> authorization = blockingTasks.supply(() -> Thread.currentThread() != requestThread ? Helpers.getAuthorization() : "request thread");
+
+        //when
+        RequestContextHolder.resetRequestAttributes();
+        String result = authorization.block(Duration.ofSeconds(5));
+
+        //then
+        assertEquals("Bearer user", result);
+    }
+
+    @Test
+    void stageIsBoundToTheRequestWhichHasCreatedIt() {
+        //given
+        bindRequest("Bearer user");
+        Function<String, Mono<String>> stage = blockingTasks.apply(value -> value + " for " + Helpers.getAuthorization());
+        RequestContextHolder.resetRequestAttributes();
+
+        //when
+        String result = Mono.just("types").publishOn(Schedulers.parallel()).flatMap(stage).block(Duration.ofSeconds(5));
+
+        //then
+        assertEquals("types for Bearer user", result);
+    }
+
+    @Test
+    void requestIsNotLeftBoundToTheExecutor() throws Exception {
+        //given
+        bindRequest("Bearer user");
+        blockingTasks.run(() -> {}).block(Duration.ofSeconds(5));
+
+        //when
+        boolean bound = executor.submit(() -> RequestContextHolder.getRequestAttributes() != null).get();
+
+        //then
+        assertFalse(bound);
+    }
+
+    @Test
+    void nullResultIsEmpty() {
+        //when
+        String result = blockingTasks.supply(() -> (String) null).block(Duration.ofSeconds(5));
+
+        //then
+        assertNull(result);
+    }
+
+    private static void bindRequest(String authorization) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(OauthClient.AUTHORIZATION_KEY, authorization);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, new MockHttpServletResponse()));
+    }
+}
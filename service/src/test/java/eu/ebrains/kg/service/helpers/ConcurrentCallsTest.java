@@ -0,0 +1,171 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentCallsTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @Test
+    void withoutExecutorCallsAreRunInTheCallingThread() {
+        //given
+        ConcurrentCalls concurrentCalls = new ConcurrentCalls(null);
+        Thread caller = Thread.currentThread();
+
+        //when
+        Supplier<Thread> thread;
+        try (ConcurrentCalls.Scope calls = concurrentCalls.open()) {
+            thread = calls.fork(Thread::currentThread);
+            calls.join();
+        }
+
+        //then
+        assertSame(caller, thread.get());
+    }
+
+    @Test
+    void forkedCallsAreRunConcurrently() {
+        //given
+        ConcurrentCalls concurrentCalls = new ConcurrentCalls(executor);
+        CyclicBarrier bothRunning = new CyclicBarrier(2);
+
+        //when
+        Supplier<String> first;
+        Supplier<String> second;
+        try (ConcurrentCalls.Scope calls = concurrentCalls.open()) {
+            first = calls.fork(() -> await(bothRunning, "first"));
+            second = calls.fork(() -> await(bothRunning, "second"));
+            calls.join();
+        }
+
+        //then
+        assertEquals("first", first.get());
+        assertEquals("second", second.get());
+    }
+
+    @Test
+    void failureIsRethrownAndTheOtherCallsAreCancelled() throws Exception {
+        //given
+        ConcurrentCalls concurrentCalls = new ConcurrentCalls(executor);
+        IllegalStateException failure = new IllegalStateException("kg-core is not available");
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        //when
+        IllegalStateException thrown;
+        try (ConcurrentCalls.Scope calls = concurrentCalls.open()) {
+            calls.fork(() -> {
+                throw failure;
+            });
+            calls.fork(() -> {
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return null;
+            });
+            thrown = assertThrows(IllegalStateException.class, calls::join);
+        }
+
+        //then
+        assertSame(failure, thrown);
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failureIsRethrownWithoutWaitingForSlowerCalls() throws Exception {
+        //given
+        ConcurrentCalls concurrentCalls = new ConcurrentCalls(executor);
+        IllegalStateException failure = new IllegalStateException("kg-core is not available");
+        CountDownLatch slowCallRunning = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        //when
+        IllegalStateException thrown;
+        long start = System.nanoTime();
+        try (ConcurrentCalls.Scope calls = concurrentCalls.open()) {
+            calls.fork(() -> {
+                slowCallRunning.countDown();
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return null;
+            });
+            calls.fork(() -> {
+                await(slowCallRunning);
+                throw failure;
+            });
+            thrown = assertThrows(IllegalStateException.class, calls::join);
+        }
+
+        //then
+        assertSame(failure, thrown);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void resultIsNotAvailableBeforeTheScopeHasBeenJoined() {
+        //given
+        List<Runnable> scheduled = new ArrayList<>();
+        ConcurrentCalls concurrentCalls = new ConcurrentCalls(scheduled::add);
+
+        //when
+        Supplier<String> result;
+        try (ConcurrentCalls.Scope calls = concurrentCalls.open()) {
+            result = calls.fork(() -> "result");
+        }
+
+        //then
+        assertThrows(IllegalStateException.class, result::get);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String await(CyclicBarrier barrier, String result) {
+        try {
+            barrier.await(5, TimeUnit.SECONDS);
+            return result;
+        } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.helpers;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MicroBatcherTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<List<Integer>> calls = new CopyOnWriteArrayList<>();
+    private final Function<List<Integer>, Map<Integer, String>> call = items -> {
+        calls.add(items);
+        return items.stream().collect(Collectors.toMap(i -> i, i -> "v" + i));
+    };
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        done.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void callersWithinTheWindowJoinTheBatch() throws Exception {
+        //given
+        MicroBatcher<String, Integer, Map<Integer, String>> batcher = new MicroBatcher<>("test", 300, 10, new SimpleMeterRegistry());
+        keepBusy(batcher);
+        Future<Map<Integer, String>> first = executor.submit(() -> batcher.execute("user", List.of(1), call));
+        Thread.sleep(50);
+
+        //when
+        Future<Map<Integer, String>> second = executor.submit(() -> batcher.execute("user", List.of(2, 1), call));
+
+        //then
+        Map<Integer, String> expected = Map.of(1, "v1", 2, "v2");
+        assertEquals(expected, first.get(5, TimeUnit.SECONDS));
+        assertEquals(expected, second.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(List.of(1, 2)), calls);
+    }
+
+    @Test
+    void batchesAreKeptApartByKey() throws Exception {
+        //given
+        MicroBatcher<String, Integer, Map<Integer, String>> batcher = new MicroBatcher<>("test", 200, 10, new SimpleMeterRegistry());
+        Future<Map<Integer, String>> first = executor.submit(() -> batcher.execute("user", List.of(1), call));
+        Thread.sleep(50);
+
+        //when
+        Future<Map<Integer, String>> second = executor.submit(() -> batcher.execute("otherUser", List.of(2), call));
+
+        //then
+        assertEquals(Map.of(1, "v1"), first.get(5, TimeUnit.SECONDS));
+        assertEquals(Map.of(2, "v2"), second.get(5, TimeUnit.SECONDS));
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    void callerArrivingAfterTheBatchHasBeenClosedOpensANewOne() throws Exception {
+        //given
+        MicroBatcher<String, Integer, Map<Integer, String>> batcher = new MicroBatcher<>("test", 100, 10, new SimpleMeterRegistry());
+        CountDownLatch issued = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Map<Integer, String>> first = executor.submit(() -> batcher.execute("user", List.of(1), items -> {
+            issued.countDown();
+            await(release);
+            return call.apply(items);
+        }));
+        assertTrue(issued.await(5, TimeUnit.SECONDS));
+
+        //when
+        Map<Integer, String> second = batcher.execute("user", List.of(2), call);
+        release.countDown();
+
+        //then
+        assertEquals(Map.of(2, "v2"), second);
+        assertEquals(Map.of(1, "v1"), first.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(List.of(2), List.of(1)), calls);
+    }
+
+    @Test
+    void callerNotFittingIntoTheBatchIssuesItsOwnCall() throws Exception {
+        //given
+        MicroBatcher<String, Integer, Map<Integer, String>> batcher = new MicroBatcher<>("test", 500, 2, new SimpleMeterRegistry());
+        keepBusy(batcher);
+        Future<Map<Integer, String>> first = executor.submit(() -> batcher.execute("user", List.of(1), call));
+        Thread.sleep(50);
+
+        //when
+        Map<Integer, String> second = batcher.execute("user", List.of(2, 3), call);
+
+        //then
+        assertFalse(first.isDone());
+        assertEquals(Map.of(2, "v2", 3, "v3"), second);
+        assertEquals(Map.of(1, "v1"), first.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(List.of(2, 3), List.of(1)), calls);
+    }
+
+    @Test
+    void failureIsPropagatedToJoinedCallers() throws Exception {
+        //given
+        MicroBatcher<String, Integer, Map<Integer, String>> batcher = new MicroBatcher<>("test", 300, 10, new SimpleMeterRegistry());
+        keepBusy(batcher);
+        IllegalStateException failure = new IllegalStateException("kg-core is not available");
+        Future<Map<Integer, String>> first = executor.submit(() -> batcher.execute("user", List.of(1), items -> {
+            throw failure;
+        }));
+        Thread.sleep(50);
+
+        //when
+        Future<Map<Integer, String>> second = executor.submit(() -> batcher.execute("user", List.of(2), call));
+
+        //then
+        assertSame(failure, assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS)).getCause());
+        assertSame(failure, assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS)).getCause());
+        assertTrue(calls.isEmpty());
+    }
+
+    @Test
+    void singleCallerIssuesItsCallWithoutWaitingForTheWindow() throws Exception {
+        //given
+        MicroBatcher<String, Integer, Map<Integer, String>> batcher = new MicroBatcher<>("test", 10000, 10, new SimpleMeterRegistry());
+
+        //when
+        Future<Map<Integer, String>> result = executor.submit(() -> batcher.execute("user", List.of(1), call));
+
+        //then
+        assertEquals(Map.of(1, "v1"), result.get(2, TimeUnit.SECONDS));
+        assertEquals(List.of(List.of(1)), calls);
+    }
+
+    @Test
+    void fullBatchIsIssuedWithoutWaitingForTheWindow() throws Exception {
+        //given
+        MicroBatcher<String, Integer, Map<Integer, String>> batcher = new MicroBatcher<>("test", 10000, 3, new SimpleMeterRegistry());
+        keepBusy(batcher);
+        Future<Map<Integer, String>> first = executor.submit(() -> batcher.execute("user", List.of(1), call));
+        Thread.sleep(50);
+
+        //when
+        Future<Map<Integer, String>> second = executor.submit(() -> batcher.execute("user", List.of(2, 3), call));
+
+        //then
+        Map<Integer, String> expected = Map.of(1, "v1", 2, "v2", 3, "v3");
+        assertEquals(expected, first.get(2, TimeUnit.SECONDS));
+        assertEquals(expected, second.get(2, TimeUnit.SECONDS));
+        assertEquals(List.of(List.of(1, 2, 3)), calls);
+    }
+
+    @Test
+    void withoutWindowEveryCallerIssuesItsOwnCall() {
+        //given
+        MicroBatcher<String, Integer, Map<Integer, String>> batcher = new MicroBatcher<>("test", 0, 10, new SimpleMeterRegistry());
+
+        //when
+        Map<Integer, String> result = batcher.execute("user", List.of(1), call);
+
+        //then
+        assertEquals(Map.of(1, "v1"), result);
+        assertEquals(List.of(List.of(1)), calls);
+    }
+
+    /**
+     * Simulates a concurrent caller (of another key) which is in progress until the end of the test - batches are only
+     * held open while other callers are around.
+     */
+    private void keepBusy(MicroBatcher<String, Integer, Map<Integer, String>> batcher) throws InterruptedException {
+        CountDownLatch issued = new CountDownLatch(1);
+        executor.submit(() -> batcher.execute("busy", List.of(0), items -> {
+            issued.countDown();
+            await(done);
+            return Map.of();
+        }));
+        assertTrue(issued.await(5, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
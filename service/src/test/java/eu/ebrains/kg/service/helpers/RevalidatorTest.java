@@ -0,0 +1,152 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.helpers;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RevalidatorTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private final Revalidator<String> revalidator = new Revalidator<>("test", scheduled::add, meterRegistry);
+
+    @Test
+    void keysAreOnlyRefreshedOnceAtATime() {
+        //given
+        List<List<String>> refreshed = new ArrayList<>();
+        revalidator.revalidate(List.of("a", "b"), refreshed::add);
+
+        //when
+        revalidator.revalidate(List.of("b", "c", "c"), refreshed::add);
+        scheduled.forEach(Runnable::run);
+
+        //then
+        assertEquals(List.of(List.of("a", "b"), List.of("c")), refreshed);
+        assertEquals(5, meterRegistry.get("kg.editor.stale.served").counter().count(), 0);
+    }
+
+    @Test
+    void keysAreRefreshedAgainOnceTheRefreshIsDone() {
+        //given
+        List<List<String>> refreshed = new ArrayList<>();
+        revalidator.revalidate(List.of("a"), refreshed::add);
+        scheduled.remove(0).run();
+
+        //when
+        revalidator.revalidate(List.of("a"), refreshed::add);
+        scheduled.remove(0).run();
+
+        //then
+        assertEquals(List.of(List.of("a"), List.of("a")), refreshed);
+    }
+
+    @Test
+    void keysAreRefreshedAgainAfterAFailure() {
+        //given
+        revalidator.revalidate(List.of("a"), keys -> {
+            throw new IllegalStateException("kg-core is not available");
+        });
+        scheduled.remove(0).run();
+        List<List<String>> refreshed = new ArrayList<>();
+
+        //when
+        revalidator.revalidate(List.of("a"), refreshed::add);
+        scheduled.remove(0).run();
+
+        //then
+        assertEquals(List.of(List.of("a")), refreshed);
+        assertEquals(1, meterRegistry.get("kg.editor.stale.revalidations").tag("outcome", "failure").counter().count(), 0);
+        assertEquals(1, meterRegistry.get("kg.editor.stale.revalidations").tag("outcome", "success").counter().count(), 0);
+    }
+
+    @Test
+    void keysAreRefreshedAgainIfTheRefreshHasBeenRejected() {
+        //given
+        AtomicBoolean reject = new AtomicBoolean(true);
+        Revalidator<String> rejecting = new Revalidator<>("test", task -> {
+            if (reject.getAndSet(false)) {
+                throw new RejectedExecutionException();
+            }
+            task.run();
+        }, meterRegistry);
+        rejecting.revalidate(List.of("a"), keys -> fail("The refresh has been rejected"));
+        List<List<String>> refreshed = new ArrayList<>();
+
+        //when
+        rejecting.revalidate(List.of("a"), refreshed::add);
+
+        //then
+        assertEquals(List.of(List.of("a")), refreshed);
+    }
+
+    @Test
+    void staleValueServedByAnotherThreadIsOnlyRecordedInTheRequest() throws InterruptedException {
+        //given
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ServletRequestAttributes attributes = new ServletRequestAttributes(request, response);
+        RequestContextHolder.setRequestAttributes(attributes);
+        try {
+            // As for a request which is handled asynchronously
+            attributes.requestCompleted();
+            Thread worker = new Thread(Helpers.withRequestContext(() -> revalidator.revalidate(List.of("a"), keys -> {})));
+
+            //when
+            worker.start();
+            worker.join();
+
+            //then
+            assertEquals(Boolean.TRUE, request.getAttribute(Revalidator.STALE_ATTRIBUTE));
+            assertFalse(response.containsHeader(HttpHeaders.WARNING));
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    @Test
+    void nothingIsRefreshedWithoutStaleKeys() {
+        //given
+        List<String> staleKeys = List.of();
+
+        //when
+        revalidator.revalidate(staleKeys, keys -> fail("Nothing to refresh"));
+
+        //then
+        assertTrue(scheduled.isEmpty());
+    }
+}
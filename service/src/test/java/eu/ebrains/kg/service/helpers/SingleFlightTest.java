@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.helpers;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>("test", new SimpleMeterRegistry());
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @Test
+    void concurrentLookupsOfTheSameKeyIssueASingleCall() throws Exception {
+        //given
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Future<String> first = executor.submit(() -> singleFlight.execute("a", key -> {
+            calls.incrementAndGet();
+            await(release);
+            return "A";
+        }));
+        awaitCalls(calls, 1);
+
+        //when
+        Future<String> second = executor.submit(() -> singleFlight.execute("a", key -> {
+            calls.incrementAndGet();
+            return "other";
+        }));
+        Thread.sleep(100);
+        release.countDown();
+
+        //then
+        assertEquals("A", first.get(5, TimeUnit.SECONDS));
+        assertEquals("A", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void onlyTheKeysWhichAreNotInFlightAreRequested() throws Exception {
+        //given
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Future<Map<String, String>> first = executor.submit(() -> singleFlight.executeAll(List.of("a"), keys -> {
+            calls.incrementAndGet();
+            await(release);
+            return Map.of("a", "A");
+        }));
+        awaitCalls(calls, 1);
+        List<String> requested = new CopyOnWriteArrayList<>();
+
+        //when
+        Future<Map<String, String>> second = executor.submit(() -> singleFlight.executeAll(List.of("a", "b"), keys -> {
+            requested.addAll(keys);
+            release.countDown();
+            return Map.of("b", "B");
+        }));
+
+        //then
+        assertEquals(Map.of("a", "A"), first.get(5, TimeUnit.SECONDS));
+        assertEquals(Map.of("a", "A", "b", "B"), second.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("b"), requested);
+    }
+
+    @Test
+    void failureIsPropagatedToJoinedCallers() throws Exception {
+        //given
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        IllegalStateException failure = new IllegalStateException("kg-core is not available");
+        Future<String> first = executor.submit(() -> singleFlight.execute("a", key -> {
+            calls.incrementAndGet();
+            await(release);
+            throw failure;
+        }));
+        awaitCalls(calls, 1);
+
+        //when
+        Future<String> second = executor.submit(() -> singleFlight.execute("a", key -> {
+            calls.incrementAndGet();
+            return "other";
+        }));
+        Thread.sleep(100);
+        release.countDown();
+
+        //then
+        assertSame(failure, assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS)).getCause());
+        assertSame(failure, assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS)).getCause());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void keyIsRequestedAgainAfterAFailure() {
+        //given
+        assertThrows(IllegalStateException.class, () -> singleFlight.execute("a", key -> {
+            throw new IllegalStateException("kg-core is not available");
+        }));
+
+        //when
+        String result = singleFlight.execute("a", key -> "A");
+
+        //then
+        assertEquals("A", result);
+    }
+
+    @Test
+    void missingValuesAreNotReturned() {
+        //given
+        List<String> keys = List.of("a", "b");
+
+        //when
+        Map<String, String> result = singleFlight.executeAll(keys, requested -> Map.of("a", "A"));
+
+        //then
+        assertEquals(Map.of("a", "A"), result);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitCalls(AtomicInteger calls, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (calls.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, calls.get());
+    }
+}
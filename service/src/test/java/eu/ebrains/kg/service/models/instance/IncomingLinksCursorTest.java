@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+
+package eu.ebrains.kg.service.models.instance;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncomingLinksCursorTest {
+
+    private static final String ID = "1bda8d6d-7333-42f5-aff5-32c87dceffbf";
+
+    @Test
+    void encodeAndDecode() {
+        //given
+        IncomingLinksCursor cursor = new IncomingLinksCursor(ID, "https://openminds.ebrains.eu/vocab/hasPart", "https://openminds.ebrains.eu/core/Dataset", 20, 10);
+
+        //when
+        IncomingLinksCursor decoded = IncomingLinksCursor.decode(ID, cursor.encode());
+
+        //then
+        assertEquals(cursor, decoded);
+    }
+
+    @Test
+    void next() {
+        //given
+        IncomingLinksCursor cursor = new IncomingLinksCursor(ID, "property", "type", 20, 10);
+
+        //when
+        IncomingLinksCursor next = cursor.next();
+
+        //then
+        assertEquals(new IncomingLinksCursor(ID, "property", "type", 30, 10), next);
+    }
+
+    @Test
+    void decodeCursorOfAnotherInstance() {
+        //given
+        String cursor = new IncomingLinksCursor("e7fb54ee-1b68-4f76-9bcd-b3a72903c7fd", "property", "type", 0, 10).encode();
+
+        //when
+        //then
+        assertThrows(IllegalArgumentException.class, () -> IncomingLinksCursor.decode(ID, cursor));
+    }
+
+    @Test
+    void decodeInvalidBase64() {
+        //given
+        String cursor = "not a cursor!";
+
+        //when
+        //then
+        assertThrows(IllegalArgumentException.class, () -> IncomingLinksCursor.decode(ID, cursor));
+    }
+
+    @Test
+    void decodeMissingParts() {
+        //given
+        String cursor = encode(String.join("\n", ID, "property", "type", "0"));
+
+        //when
+        //then
+        assertThrows(IllegalArgumentException.class, () -> IncomingLinksCursor.decode(ID, cursor));
+    }
+
+    @Test
+    void decodeInvalidPosition() {
+        //given
+        String cursor = encode(String.join("\n", ID, "property", "type", "first", "10"));
+
+        //when
+        //then
+        assertThrows(IllegalArgumentException.class, () -> IncomingLinksCursor.decode(ID, cursor));
+    }
+
+    private static String encode(String cursor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2018 - 2021 Swiss Federal Institute of Technology Lausanne (EPFL)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This open source software code was developed in part or in whole in the
+ * Human Brain Project, funded from the European Union's Horizon 2020
+ * Framework Programme for Research and Innovation under
+ * Specific Grant Agreements No. 720270, No. 785907, and No. 945539
+ * (Human Brain Project SGA1, SGA2 and SGA3).
+ *
+ */
+package eu.ebrains.kg.service.services;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.ebrains.kg.service.constants.EditorConstants;
+import eu.ebrains.kg.service.models.InstanceView;
+import eu.ebrains.kg.service.models.KGCoreResult;
+import eu.ebrains.kg.service.models.instance.InstanceFull;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstanceClientTest {
+
+    private static final String DATASET = "11111111-1111-1111-1111-111111111111";
+    private static final String NOT_FOUND = "22222222-2222-2222-2222-222222222222";
+    private static final String EMPTY = "33333333-3333-3333-3333-333333333333";
+    private static final String NOT_REQUESTED = "44444444-4444-4444-4444-444444444444";
+    private static final String MISSING = "55555555-5555-5555-5555-555555555555";
+    private static final String FULL_NAME = "https://openminds.ebrains.eu/vocab/fullName";
+    private static final String CUSTODIAN = "https://openminds.ebrains.eu/vocab/custodian";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final InstanceClient client = new InstanceClient(null, null, objectMapper, null, null, null, new SimpleMeterRegistry(), 10, 1, 0, 10);
+
+    private final String response = """
+            {
+              "message": null,
+              "startTime": 1666000000000,
+              "durationInMs": 42,
+              "data": {
+                "%1$s": {
+                  "message": null,
+                  "data": {
+                    "@id": "https://kg.ebrains.eu/api/instances/%1$s",
+                    "@type": ["https://openminds.ebrains.eu/core/DatasetVersion"],
+                    "%6$s": "dataset",
+                    "%8$s": "A dataset with \\"quotes\\" and \u00fcnicode",
+                    "%9$s": {
+                      "@type": ["https://openminds.ebrains.eu/core/Person"],
+                      "https://openminds.ebrains.eu/vocab/contactInformation": [{"@id": "https://kg.ebrains.eu/api/instances/%4$s"}],
+                      "https://openminds.ebrains.eu/vocab/affiliation": {"memberOf": {"values": [1, 2.5, true, null]}}
+                    },
+                    "%7$s": ["READ", "WRITE"]
+                  }
+                },
+                "%2$s": {
+                  "error": {"code": 404, "message": "Not found", "instanceId": "%2$s"}
+                },
+                "%3$s": {
+                  "data": null
+                },
+                "%4$s": {
+                  "data": {
+                    "@id": "https://kg.ebrains.eu/api/instances/%4$s",
+                    "@type": ["https://openminds.ebrains.eu/core/ContactInformation"],
+                    "%6$s": "common"
+                  }
+                }
+              },
+              "total": 4
+            }
+            """.formatted(DATASET, NOT_FOUND, EMPTY, NOT_REQUESTED, MISSING, EditorConstants.VOCAB_SPACE, EditorConstants.VOCAB_PERMISSIONS, FULL_NAME, CUSTODIAN);
+
+    @Test
+    void streamingDecoderReadsTheSameInstancesAsTheObjectMapper() throws Exception {
+        //given
+        byte[] payload = response.getBytes(StandardCharsets.UTF_8);
+        Map<String, ExpectedInstance> expected = readWithObjectMapper(payload);
+
+        //when
+        Map<String, InstanceView<InstanceFull>> result = client.readInstancesByIds(payload, null, InstanceFull.class);
+
+        //then
+        assertEquals(Set.of(DATASET, NOT_FOUND, NOT_REQUESTED), expected.keySet());
+        assertEquals(expected.keySet(), result.keySet());
+        for (Map.Entry<String, ExpectedInstance> e : expected.entrySet()) {
+            InstanceView<InstanceFull> view = result.get(e.getKey());
+            if (e.getValue().originalMap() != null) {
+                for (Map.Entry<String, Object> value : e.getValue().originalMap().entrySet()) {
+                    assertEquals(value.getValue(), view.getValue(value.getKey()), value.getKey());
+                }
+            }
+            assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(e.getValue().result())), objectMapper.readTree(objectMapper.writeValueAsBytes(view.getResult())), e.getKey());
+        }
+        assertEquals("Not found", result.get(NOT_FOUND).getResult().getError().getMessage());
+    }
+
+    @Test
+    void instancesWhichHaveNotBeenRequestedAreSkipped() {
+        //given
+        byte[] payload = response.getBytes(StandardCharsets.UTF_8);
+
+        //when
+        Map<String, InstanceView<InstanceFull>> result = client.readInstancesByIds(payload, Set.of(DATASET, NOT_FOUND, MISSING), InstanceFull.class);
+
+        //then
+        assertEquals(Set.of(DATASET, NOT_FOUND), result.keySet());
+        assertEquals("A dataset with \"quotes\" and \u00fcnicode", result.get(DATASET).getValue(FULL_NAME));
+    }
+
+    @Test
+    void responseWithoutDataResultsInNoInstances() {
+        //when
+        Map<String, InstanceView<InstanceFull>> result = client.readInstancesByIds("{\"message\": \"Something went wrong\", \"data\": null}".getBytes(StandardCharsets.UTF_8), null, InstanceFull.class);
+
+        //then
+        assertTrue(result.isEmpty());
+    }
+
+    private record ExpectedInstance(Map<String, Object> originalMap, InstanceFull result) {}
+
+    /**
+     * The decoding of "instancesByIds" responses as it has been done before the streaming decoder
+     */
+    private Map<String, ExpectedInstance> readWithObjectMapper(byte[] payload) throws Exception {
+        KGCoreResult.Single originalMap = objectMapper.readValue(payload, KGCoreResult.Single.class);
+        Map<String, ExpectedInstance> result = new HashMap<>();
+        originalMap.getData().keySet().forEach(f -> {
+            KGCoreResult.Single r = objectMapper.convertValue(originalMap.getData().get(f), KGCoreResult.Single.class);
+            if (r.getData() != null) {
+                result.put(f, new ExpectedInstance(r.getData(), objectMapper.convertValue(r.getData(), InstanceFull.class)));
+            } else if (r.getError() != null) {
+                InstanceFull t = objectMapper.convertValue(new HashMap<>(), InstanceFull.class);
+                t.setError(r.getError());
+                result.put(f, new ExpectedInstance(null, t));
+            }
+        });
+        return result;
+    }
+}